@@ -0,0 +1,6 @@
+package com.ecomp.gateway.cache;
+
+public enum CacheRegion {
+    CATALOG,
+    REVIEWS
+}
@@ -0,0 +1,17 @@
+package com.ecomp.gateway.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Set;
+
+@Getter
+@RequiredArgsConstructor
+public class CatalogChangedEvent {
+
+    private final Set<CacheRegion> regions;
+
+    public static CatalogChangedEvent of(CacheRegion... regions) {
+        return new CatalogChangedEvent(Set.of(regions));
+    }
+}
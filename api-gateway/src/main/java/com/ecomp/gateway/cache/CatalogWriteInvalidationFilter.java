@@ -0,0 +1,46 @@
+package com.ecomp.gateway.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// Writes that reach the catalog or reviews through the REST routes also invalidate GraphQL responses;
+// ordered ahead of the route's StripPrefix, which runs at order 1 and would hide the /api prefix matched below
+@Component
+@RequiredArgsConstructor
+public class CatalogWriteInvalidationFilter implements GlobalFilter, Ordered {
+
+    private final ApplicationEventPublisher events;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (exchange.getRequest().getMethod() == HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        String path = exchange.getRequest().getPath().value();
+        CatalogChangedEvent event;
+        if (path.startsWith("/api/reviews")) {
+            event = CatalogChangedEvent.of(CacheRegion.REVIEWS, CacheRegion.CATALOG);
+        } else if ((path.startsWith("/api/services") && !path.endsWith(":batchGet")) || path.startsWith("/api/questions")) {
+            event = CatalogChangedEvent.of(CacheRegion.CATALOG);
+        } else {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange).doOnSuccess(done -> {
+            if (exchange.getResponse().getStatusCode() != null && exchange.getResponse().getStatusCode().is2xxSuccessful()) {
+                events.publishEvent(event);
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
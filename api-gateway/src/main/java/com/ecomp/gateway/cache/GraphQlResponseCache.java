@@ -0,0 +1,179 @@
+package com.ecomp.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import graphql.ExecutionResult;
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.parser.Parser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches whole responses of anonymous read-only catalog queries. Requests carrying a JWT
+ * always go downstream, so personalised data is never shared.
+ *
+ * <p>{@link CatalogChangedEvent} is a local application event, so a write only clears this
+ * replica's entries. Other replicas keep serving theirs until the TTL expires, which bounds how
+ * stale a catalog read can be across replicas.
+ */
+@Component
+@Slf4j
+public class GraphQlResponseCache implements WebGraphQlInterceptor {
+
+    private static final Map<String, CacheRegion> CACHEABLE_FIELDS = Map.of(
+            "services", CacheRegion.CATALOG,
+            "serviceById", CacheRegion.CATALOG,
+            "servicesByIds", CacheRegion.CATALOG,
+            "reviewsByService", CacheRegion.REVIEWS);
+
+    private final boolean enabled;
+    private final Cache<CacheKey, CachedResponse> responses;
+    // Parsing is memoised per raw query text; empty means "not cacheable"
+    private final Cache<String, Optional<ParsedQuery>> parsedQueries;
+    // Bumped on invalidation so responses already in flight are not stored stale
+    private final Map<CacheRegion, AtomicLong> generations = new EnumMap<>(CacheRegion.class);
+
+    public GraphQlResponseCache(@Value("${gateway.graphql-cache.enabled:true}") boolean enabled,
+                                @Value("${gateway.graphql-cache.max-entries:5000}") long maxEntries,
+                                @Value("${gateway.graphql-cache.ttl-seconds:60}") long ttlSeconds,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.parsedQueries = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .build();
+        for (CacheRegion region : CacheRegion.values()) {
+            generations.put(region, new AtomicLong());
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "graphql.responses");
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        if (!enabled || request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+            return chain.next(request);
+        }
+        ParsedQuery parsed = parsedQueries.get(request.getDocument(), this::parse)
+                .filter(query -> request.getOperationName() == null
+                        || Objects.equals(request.getOperationName(), query.getOperationName()))
+                .orElse(null);
+        if (parsed == null) {
+            return chain.next(request);
+        }
+
+        CacheKey key = new CacheKey(parsed.getNormalizedDocument(), request.getOperationName(), request.getVariables());
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(new WebGraphQlResponse(
+                    new DefaultExecutionGraphQlResponse(request.toExecutionInput(), cached.getResult())));
+        }
+
+        Map<CacheRegion, Long> startGenerations = currentGenerations(parsed.getRegions());
+        return chain.next(request).doOnNext(response -> {
+            if (response.isValid() && response.getErrors().isEmpty()
+                    && startGenerations.equals(currentGenerations(parsed.getRegions()))) {
+                responses.put(key, new CachedResponse(response.getExecutionResult(), parsed.getRegions()));
+            }
+        });
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        event.getRegions().forEach(region -> generations.get(region).incrementAndGet());
+        responses.asMap().values().removeIf(cached -> cached.getRegions().stream().anyMatch(event.getRegions()::contains));
+        log.debug("GraphQL response cache invalidated for {}", event.getRegions());
+    }
+
+    private Optional<ParsedQuery> parse(String query) {
+        try {
+            Document document = Parser.parse(query);
+            // Only single-operation documents, so the operation name can't pick another one
+            if (document.getDefinitionsOfType(OperationDefinition.class).size() != 1) {
+                return Optional.empty();
+            }
+            OperationDefinition operation = document.getDefinitionsOfType(OperationDefinition.class).get(0);
+            if (operation.getOperation() != OperationDefinition.Operation.QUERY) {
+                return Optional.empty();
+            }
+            Set<CacheRegion> regions = EnumSet.noneOf(CacheRegion.class);
+            for (Selection<?> selection : operation.getSelectionSet().getSelections()) {
+                if (!(selection instanceof Field field)) {
+                    return Optional.empty();
+                }
+                if (field.getName().equals("__typename")) {
+                    continue;
+                }
+                CacheRegion region = CACHEABLE_FIELDS.get(field.getName());
+                if (region == null) {
+                    return Optional.empty();
+                }
+                regions.add(region);
+            }
+            if (regions.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(new ParsedQuery(AstPrinter.printAstCompact(document), operation.getName(), regions));
+        } catch (Exception e) {
+            // Invalid documents are left to the engine to report
+            return Optional.empty();
+        }
+    }
+
+    private Map<CacheRegion, Long> currentGenerations(Set<CacheRegion> regions) {
+        Map<CacheRegion, Long> current = new EnumMap<>(CacheRegion.class);
+        regions.forEach(region -> current.put(region, generations.get(region).get()));
+        return current;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class ParsedQuery {
+        private final String normalizedDocument;
+        private final String operationName;
+        private final Set<CacheRegion> regions;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CacheKey {
+        private final String document;
+        private final String operationName;
+        private final Map<String, Object> variables;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CachedResponse {
+        private final ExecutionResult result;
+        private final Set<CacheRegion> regions;
+    }
+}
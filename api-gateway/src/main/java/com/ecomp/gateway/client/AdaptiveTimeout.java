@@ -0,0 +1,35 @@
+package com.ecomp.gateway.client;
+
+import java.time.Duration;
+
+/**
+ * Timeout that follows a downstream's recent p99: completed calls feed a window, timed-out ones
+ * at the limit they hit, and the limit is p99 times a headroom factor, clamped to [min, max].
+ */
+class AdaptiveTimeout {
+
+    private final LatencyWindow latencies;
+    private final long minNanos;
+    private final long maxNanos;
+    private final double multiplier;
+    private volatile long currentNanos;
+
+    AdaptiveTimeout(int window, Duration initial, Duration min, Duration max, double multiplier) {
+        this.latencies = new LatencyWindow(window);
+        this.minNanos = min.toNanos();
+        this.maxNanos = max.toNanos();
+        this.multiplier = multiplier;
+        this.currentNanos = initial.toNanos();
+    }
+
+    Duration current() {
+        return Duration.ofNanos(currentNanos);
+    }
+
+    void record(long latencyNanos) {
+        if (latencies.record(latencyNanos)) {
+            long p99 = latencies.percentile(0.99);
+            currentNanos = Math.max(minNanos, Math.min(maxNanos, (long) (p99 * multiplier)));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.ecomp.gateway.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-downstream protection for MicroserviceClient: a circuit breaker that fails fast while a
+ * service is unhealthy, a bulkhead capping concurrent calls to it, and a timeout that adapts
+ * to its observed p99. All three cover the response body as well as the headers, so a stream
+ * that stalls halfway still trips the breaker and frees its bulkhead slot. Breaker and bulkhead settings live under resilience4j.* in the config;
+ * their state is served by the circuitbreakers and bulkheads actuator endpoints.
+ */
+@Component
+public class DownstreamGuard {
+
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.downstream.timeout.initial-ms:2000}")
+    private long initialTimeoutMs;
+
+    @Value("${gateway.downstream.timeout.min-ms:250}")
+    private long minTimeoutMs;
+
+    @Value("${gateway.downstream.timeout.max-ms:5000}")
+    private long maxTimeoutMs;
+
+    @Value("${gateway.downstream.timeout.p99-multiplier:1.5}")
+    private double p99Multiplier;
+
+    @Value("${gateway.downstream.timeout.window:256}")
+    private int window;
+
+    public DownstreamGuard(CircuitBreakerRegistry circuitBreakers, BulkheadRegistry bulkheads, MeterRegistry meterRegistry) {
+        this.circuitBreakers = circuitBreakers;
+        this.bulkheads = bulkheads;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public ExchangeFilterFunction filter(String downstream) {
+        CircuitBreaker breaker = circuitBreakers.circuitBreaker(downstream);
+        Bulkhead bulkhead = bulkheads.bulkhead(downstream);
+        AdaptiveTimeout timeout = new AdaptiveTimeout(window, Duration.ofMillis(initialTimeoutMs),
+                Duration.ofMillis(minTimeoutMs), Duration.ofMillis(maxTimeoutMs), p99Multiplier);
+        Gauge.builder("gateway.downstream.timeout", timeout, t -> t.current().toMillis())
+                .tag("downstream", downstream)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        return (request, next) -> Mono.defer(() -> {
+            if (!breaker.tryAcquirePermission()) {
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(breaker));
+            }
+            if (!bulkhead.tryAcquirePermission()) {
+                breaker.releasePermission();
+                return Mono.error(BulkheadFullException.createBulkheadFullException(bulkhead));
+            }
+            GuardedCall call = new GuardedCall(breaker, bulkhead, timeout);
+            return next.exchange(request)
+                    .timeout(call.limit)
+                    // 5xx counts against the breaker; callers see the same error retrieve() would raise
+                    .flatMap(response -> response.statusCode().is5xxServerError()
+                            ? response.createException().<ClientResponse>flatMap(Mono::error)
+                            : Mono.just(response))
+                    .map(call::responded)
+                    .doOnError(call::failed)
+                    .doOnCancel(call::cancelledBeforeResponse);
+        });
+    }
+
+    /**
+     * One guarded exchange. Permits are held until the body has been read, not just the headers,
+     * and a single deadline covers both; WebClient always consumes the body, which ends the call.
+     */
+    private static class GuardedCall {
+
+        private final CircuitBreaker breaker;
+        private final Bulkhead bulkhead;
+        private final AdaptiveTimeout timeout;
+        private final Duration limit;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile boolean responded;
+
+        GuardedCall(CircuitBreaker breaker, Bulkhead bulkhead, AdaptiveTimeout timeout) {
+            this.breaker = breaker;
+            this.bulkhead = bulkhead;
+            this.timeout = timeout;
+            this.limit = timeout.current();
+        }
+
+        ClientResponse responded(ClientResponse response) {
+            responded = true;
+            return response.mutate().body(this::guard).build();
+        }
+
+        private Flux<DataBuffer> guard(Flux<DataBuffer> body) {
+            return Flux.defer(() -> {
+                        long remaining = Math.max(0, limit.toNanos() - (System.nanoTime() - start));
+                        // Shared so the deadline doesn't restart with every buffer
+                        Mono<Long> deadline = Mono.delay(Duration.ofNanos(remaining)).cache();
+                        return body.timeout(deadline, buffer -> deadline);
+                    })
+                    .doOnComplete(this::succeeded)
+                    .doOnError(this::failed)
+                    .doOnCancel(this::cancelled);
+        }
+
+        private void succeeded() {
+            if (finished.compareAndSet(false, true)) {
+                long elapsed = System.nanoTime() - start;
+                timeout.record(elapsed);
+                breaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+                bulkhead.onComplete();
+            }
+        }
+
+        void failed(Throwable error) {
+            if (finished.compareAndSet(false, true)) {
+                if (error instanceof TimeoutException) {
+                    // A timed-out call took at least the limit; leaving it out would hide the tail from p99
+                    timeout.record(limit.toNanos());
+                }
+                breaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, error);
+                bulkhead.onComplete();
+            }
+        }
+
+        void cancelledBeforeResponse() {
+            // Once the response is out, the body's own signals end the call
+            if (!responded) {
+                cancelled();
+            }
+        }
+
+        private void cancelled() {
+            if (finished.compareAndSet(false, true)) {
+                breaker.releasePermission();
+                bulkhead.onComplete();
+            }
+        }
+    }
+}
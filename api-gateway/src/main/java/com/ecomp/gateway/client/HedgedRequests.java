@@ -0,0 +1,146 @@
+package com.ecomp.gateway.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Hedging for idempotent reads: the primary request is routed by the load balancer like any
+ * other call, and when it has not answered within the operation's observed p95 the same request
+ * goes to a different instance from the registry; whichever answers first wins. Each operation
+ * has its own token budget: every request earns a fraction of a token and every hedge spends
+ * one, so extra load stays within budget-percent of that operation's traffic.
+ */
+@Component
+@Slf4j
+public class HedgedRequests {
+
+    private static final String PRIMARY_TARGET = HedgedRequests.class.getName() + ".primaryTarget";
+
+    private final ReactiveDiscoveryClient discoveryClient;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    @Value("${gateway.hedging.enabled:false}")
+    private boolean enabled;
+
+    @Value("${gateway.hedging.budget-percent:5}")
+    private double budgetPercent;
+
+    @Value("${gateway.hedging.max-tokens:10}")
+    private double maxTokens;
+
+    @Value("${gateway.hedging.min-delay-ms:20}")
+    private long minDelayMs;
+
+    public HedgedRequests(ReactiveDiscoveryClient discoveryClient, MeterRegistry meterRegistry) {
+        this.discoveryClient = discoveryClient;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Goes after the load-balancer filter of a client: notes the instance the balancer picked
+     * for a primary request, so its hedge can be sent somewhere else.
+     */
+    public static ExchangeFilterFunction primaryTarget() {
+        return (request, next) -> Mono.deferContextual(context -> {
+            context.<AtomicReference<URI>>getOrEmpty(PRIMARY_TARGET).ifPresent(target -> target.set(request.url()));
+            return next.exchange(request);
+        });
+    }
+
+    /**
+     * @param serviceId registry name of the downstream
+     * @param baseUrl   base URL of the primary request, normally lb://serviceId
+     * @param call      builds the request against a base URL
+     */
+    public <T> Mono<T> get(String operation, String serviceId, String baseUrl, Function<String, Mono<T>> call) {
+        if (!enabled) {
+            return call.apply(baseUrl);
+        }
+        return discoveryClient.getInstances(serviceId)
+                .collectList()
+                .onErrorReturn(List.of())
+                .flatMap(instances -> {
+                    Operation op = operations.computeIfAbsent(operation, name -> new Operation());
+                    op.earn();
+                    long p95 = op.latencies.percentile(0.95);
+                    if (instances.size() < 2 || p95 < 0) {
+                        return timed(call.apply(baseUrl), op.latencies);
+                    }
+                    Duration delay = Duration.ofNanos(Math.max(p95, Duration.ofMillis(minDelayMs).toNanos()));
+
+                    AtomicReference<URI> primaryTarget = new AtomicReference<>();
+                    Mono<T> primary = timed(call.apply(baseUrl), op.latencies)
+                            .contextWrite(context -> context.put(PRIMARY_TARGET, primaryTarget));
+                    Mono<T> hedge = Mono.delay(delay).flatMap(tick -> {
+                        if (!op.spend()) {
+                            count(operation, "denied");
+                            return Mono.<T>never();
+                        }
+                        count(operation, "sent");
+                        return call.apply(otherThan(instances, primaryTarget.get()))
+                                .doOnNext(value -> count(operation, "won"))
+                                // A failed hedge must not beat a primary that may still succeed
+                                .onErrorResume(e -> Mono.never());
+                    });
+                    return Mono.firstWithSignal(primary, hedge);
+                });
+    }
+
+    private static String otherThan(List<ServiceInstance> instances, URI primary) {
+        List<ServiceInstance> others = primary == null ? instances : instances.stream()
+                .filter(instance -> !instance.getHost().equals(primary.getHost()) || instance.getPort() != primary.getPort())
+                .toList();
+        List<ServiceInstance> candidates = others.isEmpty() ? instances : others;
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size())).getUri().toString();
+    }
+
+    /**
+     * A primary that loses to its hedge is cancelled; it is recorded at the time it had run so
+     * far, otherwise the slowest calls would never reach the window and p95 would drift down.
+     */
+    private <T> Mono<T> timed(Mono<T> call, LatencyWindow window) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(value -> window.record(System.nanoTime() - start))
+                    .doOnCancel(() -> window.record(System.nanoTime() - start));
+        });
+    }
+
+    private void count(String operation, String outcome) {
+        meterRegistry.counter("gateway.client.hedges", "operation", operation, "outcome", outcome).increment();
+    }
+
+    private class Operation {
+
+        private final LatencyWindow latencies = new LatencyWindow(512);
+        private double tokens;
+
+        synchronized void earn() {
+            tokens = Math.min(maxTokens, tokens + budgetPercent / 100.0);
+        }
+
+        synchronized boolean spend() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
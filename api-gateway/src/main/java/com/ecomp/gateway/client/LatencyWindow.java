@@ -0,0 +1,47 @@
+package com.ecomp.gateway.client;
+
+import java.util.Arrays;
+
+/**
+ * Ring buffer of recent latencies with cheap percentile reads: the sorted snapshot is rebuilt
+ * every few samples rather than on every lookup.
+ */
+class LatencyWindow {
+
+    private static final int MIN_SAMPLES = 20;
+    private static final int RESORT_EVERY = 32;
+
+    private final long[] samples;
+    private int next;
+    private int count;
+    private long[] sorted = new long[0];
+
+    LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    /**
+     * @return true when the snapshot was rebuilt, so dependent values can be refreshed
+     */
+    synchronized boolean record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        count++;
+        if (count < MIN_SAMPLES || (count != MIN_SAMPLES && count % RESORT_EVERY != 0)) {
+            return false;
+        }
+        sorted = Arrays.copyOf(samples, Math.min(count, samples.length));
+        Arrays.sort(sorted);
+        return true;
+    }
+
+    /**
+     * @return the percentile in nanoseconds, or -1 until enough samples were seen
+     */
+    synchronized long percentile(double p) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(sorted.length * p) - 1)];
+    }
+}
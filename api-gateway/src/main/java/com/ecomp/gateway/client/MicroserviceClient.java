@@ -3,20 +3,36 @@ package com.ecomp.gateway.client;
 import com.ecomp.gateway.dto.GraphQLDtos.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Component
 @Slf4j
 public class MicroserviceClient {
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient catalogClient;
+    private final WebClient userClient;
+    private final WebClient cartClient;
+    private final WebClient reviewClient;
+    private final WebClient authClient;
+    private final RequestCoalescer coalescer;
+    private final HedgedRequests hedging;
 
     @Value("${services.catalog.url:http://service-catalog:8085}")
     private String catalogServiceUrl;
@@ -33,8 +49,32 @@ public class MicroserviceClient {
     @Value("${services.auth.url:http://auth-service:8083}")
     private String authServiceUrl;
 
-    public MicroserviceClient(WebClient.Builder webClientBuilder) {
-        this.webClientBuilder = webClientBuilder;
+    public MicroserviceClient(WebClient.Builder webClientBuilder, DownstreamGuard guard,
+                              RequestCoalescer coalescer, HedgedRequests hedging,
+                              LoadBalancedExchangeFilterFunction loadBalancer) {
+        // One client per downstream so each gets its own breaker, bulkhead and timeout
+        ExchangeFilterFunction lb = lbScheme(loadBalancer);
+        // Hedged clients note which instance the balancer chose, so the hedge can avoid it
+        this.catalogClient = webClientBuilder.clone().filter(guard.filter("catalog")).filter(lb)
+                .filter(HedgedRequests.primaryTarget()).build();
+        this.userClient = webClientBuilder.clone().filter(guard.filter("user")).filter(lb).build();
+        this.cartClient = webClientBuilder.clone().filter(guard.filter("cart")).filter(lb).build();
+        this.reviewClient = webClientBuilder.clone().filter(guard.filter("review")).filter(lb)
+                .filter(HedgedRequests.primaryTarget()).build();
+        this.authClient = webClientBuilder.clone().filter(guard.filter("auth")).filter(lb).build();
+        this.coalescer = coalescer;
+        this.hedging = hedging;
+    }
+
+    // lb://service-id URLs are resolved through the registry like the gateway routes; plain URLs go direct
+    private static ExchangeFilterFunction lbScheme(LoadBalancedExchangeFilterFunction loadBalancer) {
+        return (request, next) -> {
+            if (!"lb".equals(request.url().getScheme())) {
+                return next.exchange(request);
+            }
+            URI url = UriComponentsBuilder.fromUri(request.url()).scheme("http").build(true).toUri();
+            return loadBalancer.filter(ClientRequest.from(request).url(url).build(), next);
+        };
     }
 
     // ==================== CATALOG SERVICE ====================
@@ -42,29 +82,64 @@ public class MicroserviceClient {
     public Flux<Service> getServices(String filter) {
         String url = catalogServiceUrl + "/services" + (filter != null && !filter.isEmpty() ? "?filter=" + filter : "");
         log.info("Calling catalog-service at: {}", url);
-        return webClientBuilder.build()
+        return coalescer.flux("services", String.valueOf(filter), () -> catalogClient
                 .get()
                 .uri(url)
+                // Catalog streams the listing as NDJSON, so services are decoded as they arrive
+                .accept(MediaType.APPLICATION_NDJSON)
                 .retrieve()
                 .bodyToFlux(Service.class)
                 .doOnError(e -> log.error("Error fetching services: {}", e.getMessage()))
-                .onErrorResume(e -> Flux.empty());
+                .onErrorResume(e -> Flux.empty()));
     }
 
     public Mono<Service> getServiceById(String id) {
         log.info("Calling catalog-service at: {}/services/{}", catalogServiceUrl, id);
-        return webClientBuilder.build()
+        return coalescer.mono("serviceById", id, () -> hedging.get("serviceById", "service-catalog", catalogServiceUrl,
+                        baseUrl -> catalogClient
+                                .get()
+                                .uri(baseUrl + "/services/" + id)
+                                .retrieve()
+                                .bodyToMono(Service.class))
+                .doOnError(e -> log.error("Error fetching service {}: {}", id, e.getMessage()))
+                .onErrorResume(e -> Mono.empty()));
+    }
+
+    public Mono<CountryInfo> getCountryInfo(String serviceId) {
+        return coalescer.mono("countryInfo", serviceId, () -> catalogClient
                 .get()
-                .uri(catalogServiceUrl + "/services/" + id)
+                .uri(catalogServiceUrl + "/services/" + serviceId + "/country-info")
                 .retrieve()
-                .bodyToMono(Service.class)
-                .doOnError(e -> log.error("Error fetching service {}: {}", id, e.getMessage()))
-                .onErrorResume(e -> Mono.empty());
+                .bodyToMono(CountryInfo.class)
+                .doOnError(e -> log.error("Error fetching country info for service {}: {}", serviceId, e.getMessage())));
+    }
+
+    public Mono<WeatherInfo> getWeatherInfo(String serviceId) {
+        return coalescer.mono("weatherInfo", serviceId, () -> catalogClient
+                .get()
+                .uri(catalogServiceUrl + "/services/" + serviceId + "/weather")
+                .retrieve()
+                .bodyToMono(WeatherInfo.class)
+                .doOnError(e -> log.error("Error fetching weather for service {}: {}", serviceId, e.getMessage())));
+    }
+
+    // One catalog round trip for many ids; misses come back as null entries in request order
+    public Mono<List<Service>> getServicesByIds(List<String> ids, List<String> fields) {
+        log.info("Calling catalog-service batchGet for {} id(s)", ids.size());
+        return catalogClient
+                .post()
+                .uri(catalogServiceUrl + "/services:batchGet")
+                .bodyValue(Map.of("ids", ids, "fields", fields))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<Service>>() {})
+                .doOnError(e -> log.error("Error fetching services by ids: {}", e.getMessage()))
+                // Same as serviceById: an unavailable catalog reads as misses, so the list stays non-null
+                .onErrorResume(e -> Mono.just(Collections.nCopies(ids.size(), null)));
     }
 
     public Mono<Service> createService(ServiceInput input, String token) {
         log.info("Calling catalog-service to create service");
-        return webClientBuilder.build()
+        return catalogClient
                 .post()
                 .uri(catalogServiceUrl + "/services")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -75,7 +150,7 @@ public class MicroserviceClient {
     }
 
     public Mono<Service> updateService(String id, ServiceInput input, String token) {
-        return webClientBuilder.build()
+        return catalogClient
                 .put()
                 .uri(catalogServiceUrl + "/services/" + id)
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -85,7 +160,7 @@ public class MicroserviceClient {
     }
 
     public Mono<Boolean> deleteService(String id, String token) {
-        return webClientBuilder.build()
+        return catalogClient
                 .delete()
                 .uri(catalogServiceUrl + "/services/" + id)
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -99,7 +174,7 @@ public class MicroserviceClient {
 
     public Mono<UserProfile> getCurrentUserProfile(String token) {
         log.info("Calling user-service at: {}/users/me", userServiceUrl);
-        return webClientBuilder.build()
+        return userClient
                 .get()
                 .uri(userServiceUrl + "/users/me")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -111,7 +186,7 @@ public class MicroserviceClient {
 
     public Mono<UserProfile> createOrUpdateUserProfile(UserProfileInput input, String token) {
         log.info("Calling user-service at: {}/users/profile", userServiceUrl);
-        return webClientBuilder.build()
+        return userClient
                 .post()
                 .uri(userServiceUrl + "/users/profile")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -121,11 +196,23 @@ public class MicroserviceClient {
                 .doOnError(e -> log.error("Error creating/updating user profile: {}", e.getMessage()));
     }
 
+    // One user-service round trip for many ids; unknown ids are simply missing from the result
+    public Mono<List<UserSummary>> getUsersByIds(Collection<String> ids) {
+        log.info("Calling user-service batchGet for {} id(s)", ids.size());
+        return userClient
+                .post()
+                .uri(userServiceUrl + "/users:batchGet")
+                .bodyValue(Map.of("ids", ids))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<UserSummary>>() {})
+                .doOnError(e -> log.error("Error fetching users by ids: {}", e.getMessage()));
+    }
+
     // ==================== CART SERVICE ====================
 
     public Flux<CartItem> getMyCart(String token) {
         log.info("Calling cart-service at: {}/cart", cartServiceUrl);
-        return webClientBuilder.build()
+        return cartClient
                 .get()
                 .uri(cartServiceUrl + "/cart")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -136,7 +223,7 @@ public class MicroserviceClient {
     }
 
     public Mono<BigDecimal> getCartTotal(String token) {
-        return webClientBuilder.build()
+        return cartClient
                 .get()
                 .uri(cartServiceUrl + "/cart/total")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -145,11 +232,12 @@ public class MicroserviceClient {
                 .onErrorReturn(BigDecimal.ZERO);
     }
 
-    public Mono<CartItem> addToCart(String serviceId, Integer quantity, String token) {
-        log.info("Adding to cart: serviceId={}, quantity={}", serviceId, quantity);
-        return webClientBuilder.build()
+    public Mono<CartItem> addToCart(String serviceId, Integer quantity, String date, String token) {
+        log.info("Adding to cart: serviceId={}, quantity={}, date={}", serviceId, quantity, date);
+        return cartClient
                 .post()
-                .uri(cartServiceUrl + "/cart/items?serviceId=" + serviceId + "&quantity=" + (quantity != null ? quantity : 1))
+                .uri(cartServiceUrl + "/cart/items?serviceId=" + serviceId + "&quantity=" + (quantity != null ? quantity : 1)
+                        + (date != null ? "&date=" + date : ""))
                 .header(HttpHeaders.AUTHORIZATION, token)
                 .retrieve()
                 .bodyToMono(CartItem.class)
@@ -157,7 +245,7 @@ public class MicroserviceClient {
     }
 
     public Mono<CartItem> updateCartItemQuantity(String cartItemId, Integer quantity, String token) {
-        return webClientBuilder.build()
+        return cartClient
                 .put()
                 .uri(cartServiceUrl + "/cart/items/" + cartItemId + "?quantity=" + quantity)
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -166,7 +254,7 @@ public class MicroserviceClient {
     }
 
     public Mono<Boolean> removeFromCart(String cartItemId, String token) {
-        return webClientBuilder.build()
+        return cartClient
                 .delete()
                 .uri(cartServiceUrl + "/cart/items/" + cartItemId)
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -177,7 +265,7 @@ public class MicroserviceClient {
     }
 
     public Mono<Boolean> clearCart(String token) {
-        return webClientBuilder.build()
+        return cartClient
                 .delete()
                 .uri(cartServiceUrl + "/cart")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -188,7 +276,7 @@ public class MicroserviceClient {
     }
 
     public Mono<Boolean> checkout(String token) {
-        return webClientBuilder.build()
+        return cartClient
                 .post()
                 .uri(cartServiceUrl + "/cart/checkout")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -202,18 +290,21 @@ public class MicroserviceClient {
 
     public Flux<Review> getReviewsByService(String serviceId) {
         log.info("Calling review-service for serviceId: {}", serviceId);
-        return webClientBuilder.build()
-                .get()
-                .uri(reviewServiceUrl + "/reviews/service/" + serviceId)
-                .retrieve()
-                .bodyToFlux(Review.class)
+        return coalescer.flux("reviewsByService", serviceId, () -> hedging.get("reviewsByService", "review-service", reviewServiceUrl,
+                        baseUrl -> reviewClient
+                                .get()
+                                .uri(baseUrl + "/reviews/service/" + serviceId)
+                                .retrieve()
+                                .bodyToFlux(Review.class)
+                                .collectList())
+                .flatMapIterable(reviews -> reviews)
                 .doOnError(e -> log.error("Error getting reviews: {}", e.getMessage()))
-                .onErrorResume(e -> Flux.empty());
+                .onErrorResume(e -> Flux.empty()));
     }
 
     public Mono<Review> createReview(ReviewInput input, String token) {
         log.info("Creating review for serviceId: {}", input.getServiceId());
-        return webClientBuilder.build()
+        return reviewClient
                 .post()
                 .uri(reviewServiceUrl + "/reviews")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -227,7 +318,7 @@ public class MicroserviceClient {
 
     public Mono<ServiceQuestion> askQuestion(QuestionInput input, String token) {
         log.info("Asking question for serviceId: {}", input.getServiceId());
-        return webClientBuilder.build()
+        return catalogClient
                 .post()
                 .uri(catalogServiceUrl + "/questions")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -238,7 +329,7 @@ public class MicroserviceClient {
     }
 
     public Mono<ServiceQuestion> answerQuestion(String questionId, String answer, String token) {
-        return webClientBuilder.build()
+        return catalogClient
                 .put()
                 .uri(catalogServiceUrl + "/questions/" + questionId + "/answer")
                 .header(HttpHeaders.AUTHORIZATION, token)
@@ -249,11 +340,17 @@ public class MicroserviceClient {
 
     // ==================== AUTH SERVICE ====================
 
-    public Mono<Boolean> register(RegisterInput input) {
+    public Mono<Boolean> register(RegisterInput input, String clientAddress) {
         log.info("Registering user: {}", input.getUsername());
-        return webClientBuilder.build()
+        return authClient
                 .post()
                 .uri(authServiceUrl + "/auth/register")
+                // auth-service applies its own per-address limit to the caller, not to the gateway
+                .headers(headers -> {
+                    if (clientAddress != null) {
+                        headers.set("X-Forwarded-For", clientAddress);
+                    }
+                })
                 .bodyValue(input)
                 .retrieve()
                 .bodyToMono(String.class)
@@ -0,0 +1,77 @@
+package com.ecomp.gateway.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for anonymous downstream reads: callers asking for the same key while a call is
+ * in flight subscribe to that call instead of starting their own. The entry is dropped as soon
+ * as the call completes, so nothing is served after the fact and no staleness is added.
+ */
+@Component
+public class RequestCoalescer {
+
+    private final Map<String, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    public RequestCoalescer(MeterRegistry meterRegistry,
+                            @Value("${gateway.coalescing.enabled:true}") boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> mono(String operation, String key, Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return Mono.defer(() -> {
+            String flightKey = operation + ":" + key;
+            boolean[] leader = {false};
+            Mono<T> shared = (Mono<T>) inFlight.computeIfAbsent(flightKey, k -> {
+                leader[0] = true;
+                return start(k, call);
+            });
+            countersFor(operation)[leader[0] ? 0 : 1].increment();
+            return shared;
+        });
+    }
+
+    // Lists are shared as one collected value and re-emitted per subscriber
+    public <T> Flux<T> flux(String operation, String key, Supplier<Flux<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return mono(operation, key, () -> call.get().collectList())
+                .flatMapIterable(list -> list);
+    }
+
+    private <T> Mono<T> start(String flightKey, Supplier<Mono<T>> call) {
+        Mono<?>[] self = new Mono<?>[1];
+        // cache() replays the single result to every joined caller; removing by identity never drops a newer flight
+        Mono<T> shared = Mono.defer(call)
+                .doFinally(signal -> inFlight.remove(flightKey, self[0]))
+                .cache();
+        self[0] = shared;
+        return shared;
+    }
+
+    private Counter[] countersFor(String operation) {
+        // leader = went downstream, joined = served by someone else's call; joined / total is the dedupe ratio
+        return counters.computeIfAbsent(operation, op -> new Counter[]{
+                Counter.builder("gateway.client.coalesced").tag("operation", op).tag("outcome", "leader").register(meterRegistry),
+                Counter.builder("gateway.client.coalesced").tag("operation", op).tag("outcome", "joined").register(meterRegistry)
+        });
+    }
+}
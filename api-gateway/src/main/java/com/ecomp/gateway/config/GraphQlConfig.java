@@ -0,0 +1,36 @@
+package com.ecomp.gateway.config;
+
+import com.ecomp.gateway.graphql.PersistedQueryDocumentProvider;
+import com.ecomp.gateway.graphql.PersistedQueryHttpHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+@Configuration
+public class GraphQlConfig {
+
+    @Bean
+    public GraphQlSourceBuilderCustomizer persistedQueryCustomizer(PersistedQueryDocumentProvider documentProvider) {
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(documentProvider));
+    }
+
+    // Takes /graphql ahead of the Boot-provided route; WebSocket upgrades still go to Boot's handler
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public RouterFunction<ServerResponse> persistedQueryRouterFunction(PersistedQueryHttpHandler handler,
+                                                                       @Value("${spring.graphql.path:/graphql}") String path) {
+        return RouterFunctions.route()
+                .GET(path, request -> !request.headers().asHttpHeaders().containsKey(HttpHeaders.UPGRADE), handler::handleGet)
+                .POST(path, RequestPredicates.contentType(MediaType.APPLICATION_JSON), handler::handlePost)
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecomp.gateway.config;
+
+import com.ecomp.gateway.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+// Both the lb:// gateway routes and MicroserviceClient pick instances with peak-EWMA
+@Configuration
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,52 @@
+package com.ecomp.gateway.config;
+
+import com.ecomp.gateway.ratelimit.AuthRateLimiter;
+import com.ecomp.gateway.ratelimit.InMemoryRateLimitStore;
+import com.ecomp.gateway.ratelimit.LocalFirstRateLimiter;
+import com.ecomp.gateway.ratelimit.RateLimitStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.time.Duration;
+
+@Configuration
+public class RateLimitConfig {
+
+    // Replace with a store shared by all replicas to enforce limits across the cluster
+    @Bean
+    @ConditionalOnMissingBean
+    public RateLimitStore rateLimitStore(@Value("${gateway.rate-limit.routes.idle-timeout-seconds:600}") long idleTimeoutSeconds) {
+        return new InMemoryRateLimitStore(Duration.ofSeconds(idleTimeoutSeconds));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public LocalFirstRateLimiter localFirstRateLimiter(ConfigurationService configurationService, RateLimitStore store,
+                                                       @Value("${gateway.rate-limit.routes.replenish-rate:20}") int replenishRate,
+                                                       @Value("${gateway.rate-limit.routes.burst-capacity:40}") int burstCapacity,
+                                                       @Value("${gateway.rate-limit.routes.sync-interval-ms:500}") long syncIntervalMs,
+                                                       @Value("${gateway.rate-limit.routes.idle-timeout-seconds:600}") long idleTimeoutSeconds) {
+        LocalFirstRateLimiter.Config defaults = new LocalFirstRateLimiter.Config();
+        defaults.setReplenishRate(replenishRate);
+        defaults.setBurstCapacity(burstCapacity);
+        return new LocalFirstRateLimiter(configurationService, store, defaults,
+                Duration.ofMillis(syncIntervalMs), Duration.ofSeconds(idleTimeoutSeconds));
+    }
+
+    // Authenticated callers are limited per user, anonymous ones per client address
+    @Bean
+    public KeyResolver principalKeyResolver(AuthRateLimiter authRateLimiter) {
+        return exchange -> exchange.getPrincipal()
+                .map(Principal::getName)
+                .map(name -> "user:" + name)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    String address = authRateLimiter.clientAddress(exchange.getRequest());
+                    return "address:" + (address != null ? address : "unknown");
+                }));
+    }
+}
@@ -56,6 +56,7 @@ public class GraphQLDtos {
     @AllArgsConstructor
     public static class ServiceQuestion {
         private String id;
+        private String serviceId;
         private String userId;
         private String question;
         private String answer;
@@ -94,6 +95,17 @@ public class GraphQLDtos {
         private String socialMedia;
     }
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UserSummary {
+        private String keycloakId;
+        private String username;
+        private String role;
+        private String photoUrl;
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -103,10 +115,20 @@ public class GraphQLDtos {
         private String serviceId;
         private String serviceName;
         private String serviceCategory;
+        private String serviceDate;
         private Integer quantity;
         private BigDecimal unitPrice;
     }
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CartSnapshot {
+        private List<CartItem> items;
+        private BigDecimal total;
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
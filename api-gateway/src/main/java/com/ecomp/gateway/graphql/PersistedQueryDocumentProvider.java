@@ -0,0 +1,114 @@
+package com.ecomp.gateway.graphql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.language.OperationDefinition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Keeps parsed and validated documents keyed by the SHA-256 of their text, which is the id
+ * Apollo clients send as persistedQuery.sha256Hash. Plain queries share the same cache, so a
+ * hash becomes known the first time its full text is seen either way.
+ */
+@Component
+public class PersistedQueryDocumentProvider implements PreparsedDocumentProvider {
+
+    public static final String HTTP_GET_CONTEXT_KEY = "ecomp.httpGet";
+
+    private final Cache<String, CachedDocument> documents;
+    private final ApolloPersistedQuerySupport persistedQuerySupport;
+
+    public PersistedQueryDocumentProvider(@Value("${gateway.apq.max-entries:2000}") long maxEntries,
+                                          MeterRegistry meterRegistry) {
+        this.documents = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, documents, "graphql.documents");
+        this.persistedQuerySupport = new ApolloPersistedQuerySupport((id, input, onCacheMiss) -> {
+            CachedDocument cached = documents.getIfPresent(id.toString());
+            if (cached != null) {
+                return cached.getEntry();
+            }
+            String query = input.getQuery();
+            if (query == null || query.isBlank() || query.equals(PersistedQuerySupport.PERSISTED_QUERY_MARKER)) {
+                throw new PersistedQueryNotFound(id);
+            }
+            PreparsedDocumentEntry entry = onCacheMiss.apply(query);
+            documents.put(id.toString(), new CachedDocument(query, entry));
+            return entry;
+        });
+    }
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput input,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+        PreparsedDocumentEntry entry;
+        if (input.getExtensions() != null && input.getExtensions().containsKey("persistedQuery")) {
+            entry = persistedQuerySupport.getDocument(input, parseAndValidate);
+        } else {
+            entry = documents.get(sha256(input.getQuery()),
+                    hash -> new CachedDocument(input.getQuery(), parseAndValidate.apply(input))).getEntry();
+        }
+        return rejectMutationsOverGet(input, entry);
+    }
+
+    /**
+     * The original text of a registered hash, so HTTP handlers can hand Spring GraphQL a real
+     * document for hash-only requests.
+     */
+    public Optional<String> findQuery(String sha256Hash) {
+        return Optional.ofNullable(documents.getIfPresent(sha256Hash)).map(CachedDocument::getQuery);
+    }
+
+    // GET responses may be cached by browsers and CDNs, so they must never change state
+    private PreparsedDocumentEntry rejectMutationsOverGet(ExecutionInput input, PreparsedDocumentEntry entry) {
+        boolean httpGet = Boolean.TRUE.equals(input.getGraphQLContext().get(HTTP_GET_CONTEXT_KEY));
+        if (!httpGet || entry.getDocument() == null) {
+            return entry;
+        }
+        boolean queryOnly = entry.getDocument().getDefinitionsOfType(OperationDefinition.class).stream()
+                .allMatch(operation -> operation.getOperation() == OperationDefinition.Operation.QUERY);
+        if (queryOnly) {
+            return entry;
+        }
+        return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError()
+                .message("Only queries can be sent with GET")
+                .build());
+    }
+
+    static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CachedDocument {
+        private final String query;
+        private final PreparsedDocumentEntry entry;
+    }
+}
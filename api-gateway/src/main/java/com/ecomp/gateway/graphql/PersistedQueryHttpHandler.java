@@ -0,0 +1,121 @@
+package com.ecomp.gateway.graphql;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.graphql.server.WebGraphQlHandler;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * HTTP entry point for /graphql that understands automatic persisted queries. Spring GraphQL
+ * insists on a query string, so hash-only requests get the registered text, or graphql-java's
+ * marker when the hash is unknown (the client then retries with the full query).
+ */
+@Component
+@RequiredArgsConstructor
+public class PersistedQueryHttpHandler {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> BODY_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final WebGraphQlHandler graphQlHandler;
+    private final PersistedQueryDocumentProvider documents;
+    private final ObjectMapper objectMapper;
+
+    @Value("${gateway.apq.get-max-age-seconds:60}")
+    private long getMaxAge;
+
+    public Mono<ServerResponse> handlePost(ServerRequest request) {
+        return request.bodyToMono(BODY_TYPE)
+                .flatMap(body -> execute(request, body, false));
+    }
+
+    public Mono<ServerResponse> handleGet(ServerRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        request.queryParam("query").ifPresent(query -> body.put("query", query));
+        request.queryParam("operationName").ifPresent(name -> body.put("operationName", name));
+        readJson(request, "variables").ifPresent(variables -> body.put("variables", variables));
+        readJson(request, "extensions").ifPresent(extensions -> body.put("extensions", extensions));
+        return execute(request, body, true);
+    }
+
+    private Mono<ServerResponse> execute(ServerRequest request, Map<String, Object> body, boolean httpGet) {
+        WebGraphQlRequest graphQlRequest = new WebGraphQlRequest(
+                request.uri(), request.headers().asHttpHeaders(), request.cookies(), request.attributes(),
+                withQuery(body), request.exchange().getRequest().getId(),
+                request.exchange().getLocaleContext().getLocale());
+        if (httpGet) {
+            graphQlRequest.configureExecutionInput((input, builder) -> builder
+                    .graphQLContext(Map.of(PersistedQueryDocumentProvider.HTTP_GET_CONTEXT_KEY, true))
+                    .build());
+        }
+
+        boolean anonymous = !request.headers().asHttpHeaders().containsKey(HttpHeaders.AUTHORIZATION);
+        return graphQlHandler.handleRequest(graphQlRequest).flatMap(response -> {
+            ServerResponse.BodyBuilder builder = ServerResponse.ok()
+                    .headers(headers -> headers.putAll(response.getResponseHeaders()))
+                    .contentType(selectResponseMediaType(request));
+            // Anonymous GETs are identical for everyone, let browsers and CDNs keep them
+            if (httpGet && anonymous && response.getErrors().isEmpty()) {
+                builder.cacheControl(CacheControl.maxAge(Duration.ofSeconds(getMaxAge)).cachePublic());
+            }
+            return builder.bodyValue(response.toMap());
+        });
+    }
+
+    private Map<String, Object> withQuery(Map<String, Object> body) {
+        if (body.get("query") instanceof String query && !query.isBlank()) {
+            return body;
+        }
+        String hash = persistedQueryHash(body);
+        if (hash == null) {
+            // Nothing to resolve, let Spring GraphQL reject it as usual
+            return body;
+        }
+        Map<String, Object> patched = new HashMap<>(body);
+        patched.put("query", documents.findQuery(hash).orElse(PersistedQuerySupport.PERSISTED_QUERY_MARKER));
+        return patched;
+    }
+
+    private static String persistedQueryHash(Map<String, Object> body) {
+        if (body.get("extensions") instanceof Map<?, ?> extensions
+                && extensions.get("persistedQuery") instanceof Map<?, ?> persistedQuery
+                && persistedQuery.get("sha256Hash") instanceof String hash) {
+            return hash;
+        }
+        return null;
+    }
+
+    private Optional<Map<String, Object>> readJson(ServerRequest request, String name) {
+        return request.queryParam(name).map(json -> {
+            try {
+                return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+            } catch (JsonProcessingException e) {
+                throw new ServerWebInputException("Invalid JSON in '" + name + "'");
+            }
+        });
+    }
+
+    private static MediaType selectResponseMediaType(ServerRequest request) {
+        return request.headers().accept().contains(MediaType.APPLICATION_GRAPHQL_RESPONSE)
+                ? MediaType.APPLICATION_GRAPHQL_RESPONSE
+                : MediaType.APPLICATION_JSON;
+    }
+}
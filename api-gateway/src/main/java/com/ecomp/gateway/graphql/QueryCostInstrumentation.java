@@ -0,0 +1,161 @@
+package com.ecomp.gateway.graphql;
+
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLNonNull;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLOutputType;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rejects operations whose static cost or depth is over budget before any data fetcher runs.
+ * Cost is the sum of field weights plus one per list element, where every element also carries
+ * the cost of its own selections. List sizes are the number of ids requested, or a default size
+ * when unknown, so a list nested in a list is paid for once per element of its parent.
+ */
+@Component
+@Slf4j
+public class QueryCostInstrumentation extends SimplePerformantInstrumentation {
+
+    // Fields that cost a downstream call; anything else weighs 1 (objects) or 0 (scalars)
+    private static final Map<String, Integer> FIELD_WEIGHTS = Map.of(
+            "Query.services", 10,
+            "Query.serviceById", 5,
+            "Query.servicesByIds", 5,
+            "Query.reviewsByService", 5,
+            "Query.currentUserProfile", 2,
+            "Query.myCart", 2,
+            "Query.cartTotal", 2,
+            "Service.reviews", 5,
+            "Service.countryInfo", 3,
+            "Service.weatherInfo", 3);
+
+    private final int maxCost;
+    private final int maxDepth;
+    private final int defaultListSize;
+    private final DistributionSummary costSummary;
+    private final DistributionSummary depthSummary;
+    private final MeterRegistry meterRegistry;
+
+    public QueryCostInstrumentation(@Value("${gateway.graphql-cost.max-cost:500}") int maxCost,
+                                    @Value("${gateway.graphql-cost.max-depth:8}") int maxDepth,
+                                    @Value("${gateway.graphql-cost.default-list-size:20}") int defaultListSize,
+                                    MeterRegistry meterRegistry) {
+        this.maxCost = maxCost;
+        this.maxDepth = maxDepth;
+        this.defaultListSize = defaultListSize;
+        this.meterRegistry = meterRegistry;
+        this.costSummary = DistributionSummary.builder("graphql.query.cost")
+                .description("Static cost of executed GraphQL operations")
+                .register(meterRegistry);
+        this.depthSummary = DistributionSummary.builder("graphql.query.depth")
+                .description("Selection depth of executed GraphQL operations")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        ExecutionContext context = parameters.getExecutionContext();
+        QueryTraverser traverser = QueryTraverser.newQueryTraverser()
+                .schema(context.getGraphQLSchema())
+                .document(context.getDocument())
+                .operationName(context.getOperationDefinition().getName())
+                .coercedVariables(context.getCoercedVariables())
+                .build();
+
+        // Post-order: children report their cost to the parent entry before the parent is visited
+        Map<QueryVisitorFieldEnvironment, Long> childCosts = new HashMap<>();
+        int[] depth = {0};
+        traverser.visitPostOrder(new QueryVisitorStub() {
+            @Override
+            public void visitField(QueryVisitorFieldEnvironment env) {
+                if (isIntrospection(env)) {
+                    return;
+                }
+                long children = childCosts.getOrDefault(env, 0L);
+                long cost = isList(env.getFieldDefinition().getType())
+                        ? fieldWeight(env) + listSize(env) * (1 + children)
+                        : fieldWeight(env) + children;
+                childCosts.merge(env.getParentEnvironment(), cost, Long::sum);
+                depth[0] = Math.max(depth[0], depthOf(env));
+            }
+        });
+        long cost = childCosts.getOrDefault(null, 0L);
+
+        costSummary.record(cost);
+        depthSummary.record(depth[0]);
+        if (depth[0] > maxDepth) {
+            reject("depth");
+            throw new AbortExecutionException("Query depth " + depth[0] + " exceeds the limit of " + maxDepth);
+        }
+        if (cost > maxCost) {
+            reject("cost");
+            throw new AbortExecutionException("Query cost " + cost + " exceeds the limit of " + maxCost);
+        }
+        return super.beginExecuteOperation(parameters, state);
+    }
+
+    private void reject(String reason) {
+        meterRegistry.counter("graphql.query.rejected", "reason", reason).increment();
+        log.warn("GraphQL operation rejected, {} over budget", reason);
+    }
+
+    private int fieldWeight(QueryVisitorFieldEnvironment env) {
+        String parent = GraphQLTypeUtil.unwrapAll(env.getParentType()).getName();
+        Integer weight = FIELD_WEIGHTS.get(parent + "." + env.getField().getName());
+        if (weight != null) {
+            return weight;
+        }
+        return GraphQLTypeUtil.unwrapAll(env.getFieldDefinition().getType()) instanceof GraphQLObjectType ? 1 : 0;
+    }
+
+    private long listSize(QueryVisitorFieldEnvironment env) {
+        // The only sized list argument in the schema today is servicesByIds(ids)
+        if (env.getArguments().get("ids") instanceof Collection<?> ids) {
+            return Math.max(ids.size(), 1);
+        }
+        return defaultListSize;
+    }
+
+    private static boolean isList(GraphQLOutputType type) {
+        GraphQLType unwrapped = type instanceof GraphQLNonNull nonNull ? nonNull.getWrappedType() : type;
+        return unwrapped instanceof GraphQLList;
+    }
+
+    private static boolean isIntrospection(QueryVisitorFieldEnvironment env) {
+        for (QueryVisitorFieldEnvironment current = env; current != null; current = current.getParentEnvironment()) {
+            if (current.getField().getName().startsWith("__")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int depthOf(QueryVisitorFieldEnvironment env) {
+        int depth = 0;
+        for (QueryVisitorFieldEnvironment current = env; current != null; current = current.getParentEnvironment()) {
+            depth++;
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ecomp.gateway.graphql;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.server.WebSocketGraphQlInterceptor;
+import org.springframework.graphql.server.WebSocketGraphQlRequest;
+import org.springframework.graphql.server.WebSocketSessionInfo;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Browsers cannot set headers on a WebSocket handshake, so graphql-ws clients send the token
+ * in the connection_init payload. It is verified once per connection and then exposed to
+ * every operation on that socket as the authenticated principal until it expires.
+ */
+@Component
+@RequiredArgsConstructor
+public class WebSocketAuthInterceptor implements WebSocketGraphQlInterceptor {
+
+    private static final String JWT_ATTRIBUTE = WebSocketAuthInterceptor.class.getName() + ".jwt";
+
+    private final ReactiveJwtDecoder jwtDecoder;
+
+    @Override
+    public Mono<Object> handleConnectionInitialization(WebSocketSessionInfo sessionInfo, Map<String, Object> payload) {
+        Object header = payload.getOrDefault("Authorization", payload.get("authorization"));
+        if (!(header instanceof String value) || value.isBlank()) {
+            // Anonymous connections may still subscribe to public events
+            return Mono.empty();
+        }
+        String token = value.startsWith("Bearer ") ? value.substring("Bearer ".length()) : value;
+        // A bad token fails the handshake and graphql-ws closes the socket with 4401
+        return jwtDecoder.decode(token)
+                .doOnNext(jwt -> sessionInfo.getAttributes().put(JWT_ATTRIBUTE, jwt))
+                .then(Mono.empty());
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, WebGraphQlInterceptor.Chain chain) {
+        if (request instanceof WebSocketGraphQlRequest socketRequest
+                && socketRequest.getSessionInfo().getAttributes().get(JWT_ATTRIBUTE) instanceof Jwt jwt
+                && (jwt.getExpiresAt() == null || jwt.getExpiresAt().isAfter(Instant.now()))) {
+            return chain.next(request)
+                    .contextWrite(ReactiveSecurityContextHolder.withAuthentication(new JwtAuthenticationToken(jwt)));
+        }
+        return chain.next(request);
+    }
+}
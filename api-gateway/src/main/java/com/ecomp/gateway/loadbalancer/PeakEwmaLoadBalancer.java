@@ -0,0 +1,181 @@
+package com.ecomp.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Power-of-two-choices over peak-EWMA latency times outstanding requests. A worse latency is
+ * taken immediately and better ones are blended in over the decay window, so a stalling
+ * instance is avoided at once and let back in gradually. Instances that join after startup are
+ * slow-started: their cost is inflated until they have been up for the slow-start window.
+ *
+ * Implements the lifecycle so the gateway's lb:// routes and MicroserviceClient both report
+ * request outcomes back to the same per-instance statistics.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+    private final long decayNanos;
+    private final long slowStartNanos;
+    private final long defaultRttNanos;
+    private final long failurePenaltyNanos;
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, Duration decay,
+                                Duration slowStart, Duration defaultRtt, Duration failurePenalty) {
+        this.suppliers = suppliers;
+        this.decayNanos = decay.toNanos();
+        this.slowStartNanos = slowStart.toNanos();
+        this.defaultRttNanos = defaultRtt.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::select);
+    }
+
+    private Response<ServiceInstance> select(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        long now = System.nanoTime();
+        if (!seeded) {
+            // Instances already up when the gateway starts are not new, don't slow-start them
+            seeded = true;
+            instances.forEach(instance -> stats.computeIfAbsent(key(instance), k -> new InstanceStats(now - slowStartNanos)));
+        }
+        if (stats.size() > instances.size() * 2) {
+            Set<String> live = new HashSet<>();
+            instances.forEach(instance -> live.add(key(instance)));
+            stats.keySet().retainAll(live);
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(cost(a, now) <= cost(b, now) ? a : b);
+    }
+
+    private double cost(ServiceInstance instance, long now) {
+        InstanceStats instanceStats = stats(instance, now);
+        double load = instanceStats.latency(now) * (instanceStats.outstanding.get() + 1);
+        if (slowStartNanos <= 0) {
+            return load;
+        }
+        double warmth = Math.min(1.0, Math.max(0.1, (now - instanceStats.firstSeen) / (double) slowStartNanos));
+        return load / warmth;
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        stats(lbResponse.getServer(), System.nanoTime()).outstanding.incrementAndGet();
+        if (request.getContext() instanceof TimedRequestContext timed && timed.getRequestStartTime() == 0) {
+            timed.setRequestStartTime(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        long now = System.nanoTime();
+        InstanceStats instanceStats = stats(lbResponse.getServer(), now);
+        instanceStats.outstanding.updateAndGet(current -> Math.max(0, current - 1));
+        if (completionContext.status() == CompletionContext.Status.DISCARD
+                || !(completionContext.getLoadBalancerRequest().getContext() instanceof TimedRequestContext timed)
+                || timed.getRequestStartTime() == 0) {
+            return;
+        }
+        long rtt = now - timed.getRequestStartTime();
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                || (completionContext.getClientResponse() instanceof ResponseData response
+                && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError());
+        instanceStats.observe(failed ? Math.max(rtt, failurePenaltyNanos) : rtt, now);
+    }
+
+    private InstanceStats stats(ServiceInstance instance, long now) {
+        return stats.computeIfAbsent(key(instance), k -> new InstanceStats(now));
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+    }
+
+    private class InstanceStats {
+
+        private final long firstSeen;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaNanos = defaultRttNanos;
+        private long stamp;
+
+        InstanceStats(long firstSeen) {
+            this.firstSeen = firstSeen;
+        }
+
+        synchronized void observe(long rttNanos, long now) {
+            if (rttNanos > ewmaNanos) {
+                ewmaNanos = rttNanos;
+            } else {
+                double weight = stamp == 0 ? 0 : Math.exp(-(now - stamp) / (double) decayNanos);
+                ewmaNanos = ewmaNanos * weight + rttNanos * (1 - weight);
+            }
+            stamp = now;
+        }
+
+        // An idle estimate drifts back to the default so a once-slow instance gets probed again
+        synchronized double latency(long now) {
+            if (stamp == 0) {
+                return ewmaNanos;
+            }
+            double weight = Math.exp(-(now - stamp) / (double) decayNanos);
+            return ewmaNanos * weight + defaultRttNanos * (1 - weight);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ecomp.gateway.loadbalancer;
+
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Loaded into each per-service load balancer context, deliberately not a scanned @Configuration
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ServiceInstanceListSupplier zonePreferenceServiceInstanceListSupplier(ConfigurableApplicationContext context) {
+        return ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .withZonePreference()
+                .withCaching()
+                .build(context);
+    }
+
+    @Bean
+    public PeakEwmaLoadBalancer peakEwmaLoadBalancer(Environment environment, LoadBalancerClientFactory factory) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PeakEwmaLoadBalancer(
+                factory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                Duration.ofMillis(environment.getProperty("gateway.load-balancer.decay-ms", Long.class, 10000L)),
+                Duration.ofMillis(environment.getProperty("gateway.load-balancer.slow-start-ms", Long.class, 30000L)),
+                Duration.ofMillis(environment.getProperty("gateway.load-balancer.default-rtt-ms", Long.class, 50L)),
+                Duration.ofMillis(environment.getProperty("gateway.load-balancer.failure-penalty-ms", Long.class, 2000L)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecomp.gateway.ratelimit;
+
+import com.ecomp.common.security.ratelimit.SlidingWindowSketch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+/**
+ * Per-client-address limit on the unauthenticated login and registration entry points, so a
+ * credential-stuffing burst is turned away here instead of reaching Keycloak.
+ */
+@Component
+public class AuthRateLimiter {
+
+    public static final String CLIENT_ADDRESS = "com.ecomp.gateway.ratelimit.clientAddress";
+
+    private final SlidingWindowSketch byAddress;
+    private final Counter rejected;
+
+    @Value("${gateway.rate-limit.auth.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gateway.rate-limit.auth.max-requests-per-address:30}")
+    private long maxRequestsPerAddress;
+
+    @Value("${gateway.rate-limit.auth.behind-proxy:false}")
+    private boolean behindProxy;
+
+    public AuthRateLimiter(MeterRegistry meterRegistry,
+                           @Value("${gateway.rate-limit.auth.window-seconds:60}") long windowSeconds,
+                           @Value("${gateway.rate-limit.auth.sketch-width:16384}") int sketchWidth) {
+        this.byAddress = new SlidingWindowSketch(sketchWidth, Duration.ofSeconds(windowSeconds));
+        this.rejected = Counter.builder("gateway.rate-limit.rejected")
+                .tag("limit", "auth-address")
+                .register(meterRegistry);
+    }
+
+    public boolean allow(String clientAddress) {
+        if (!enabled || clientAddress == null || byAddress.tryAcquire(clientAddress, maxRequestsPerAddress)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public long retryAfterSeconds() {
+        return byAddress.retryAfterSeconds();
+    }
+
+    /**
+     * The peer address, or behind a trusted proxy the address it appended to X-Forwarded-For.
+     * Entries further left are supplied by the client and are never trusted.
+     */
+    public String clientAddress(ServerHttpRequest request) {
+        if (behindProxy) {
+            String forwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                return forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+            }
+        }
+        InetSocketAddress remote = request.getRemoteAddress();
+        return remote != null && remote.getAddress() != null ? remote.getAddress().getHostAddress() : null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.ecomp.gateway.ratelimit;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Exposes the address resolved by AuthRateLimitFilter to resolvers as a GraphQL context value
+@Component
+public class ClientAddressInterceptor implements WebGraphQlInterceptor {
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        Object clientAddress = request.getAttributes().get(AuthRateLimiter.CLIENT_ADDRESS);
+        if (clientAddress != null) {
+            request.configureExecutionInput((input, builder) ->
+                    builder.graphQLContext(context -> context.put(AuthRateLimiter.CLIENT_ADDRESS, clientAddress)).build());
+        }
+        return chain.next(request);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ecomp.gateway.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies the route limiter to /graphql, which the gateway serves itself instead of routing, so
+ * the RequestRateLimiter default filter never sees it. Runs after security to key on the user.
+ */
+@Component
+public class GraphQlRateLimitFilter implements WebFilter {
+
+    // Buckets are kept apart from the routes'; the rates are the default filter's
+    public static final String ROUTE_ID = "graphql";
+
+    private final LocalFirstRateLimiter rateLimiter;
+    private final KeyResolver keyResolver;
+    private final String graphQlPath;
+
+    public GraphQlRateLimitFilter(LocalFirstRateLimiter rateLimiter, KeyResolver principalKeyResolver,
+                                  @Value("${spring.graphql.path:/graphql}") String graphQlPath) {
+        this.rateLimiter = rateLimiter;
+        this.keyResolver = principalKeyResolver;
+        this.graphQlPath = graphQlPath;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().value().equals(graphQlPath)) {
+            return chain.filter(exchange);
+        }
+        return keyResolver.resolve(exchange)
+                .flatMap(key -> rateLimiter.isAllowed(ROUTE_ID, key))
+                .flatMap(response -> {
+                    exchange.getResponse().getHeaders().setAll(response.getHeaders());
+                    if (response.isAllowed()) {
+                        return chain.filter(exchange);
+                    }
+                    exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    return exchange.getResponse().setComplete();
+                });
+    }
+}
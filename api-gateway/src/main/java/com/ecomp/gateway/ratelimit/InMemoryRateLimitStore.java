@@ -0,0 +1,54 @@
+package com.ecomp.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Store shared only by the limiters of one JVM: a stand-in for a single replica and for tests.
+ * Several replicas need an implementation backed by storage they all reach.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, KeyTotals> totals;
+
+    public InMemoryRateLimitStore(Duration idleTimeout) {
+        this.totals = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .build();
+    }
+
+    @Override
+    public Mono<Map<String, Long>> exchange(String nodeId, Map<String, Long> consumed) {
+        consumed.forEach((key, tokens) -> totals.get(key, k -> new KeyTotals()).add(nodeId, tokens));
+        Map<String, Long> fromPeers = new HashMap<>();
+        totals.asMap().forEach((key, keyTotals) -> {
+            long tokens = keyTotals.consumedByPeersSinceLastSeen(nodeId);
+            if (tokens > 0) {
+                fromPeers.put(key, tokens);
+            }
+        });
+        return Mono.just(fromPeers);
+    }
+
+    private static class KeyTotals {
+        private final Map<String, Long> consumedByNode = new HashMap<>();
+        private final Map<String, Long> peerTotalSeenByNode = new HashMap<>();
+        private long total;
+
+        synchronized void add(String nodeId, long tokens) {
+            consumedByNode.merge(nodeId, tokens, Long::sum);
+            total += tokens;
+        }
+
+        synchronized long consumedByPeersSinceLastSeen(String nodeId) {
+            long peerTotal = total - consumedByNode.getOrDefault(nodeId, 0L);
+            Long seen = peerTotalSeenByNode.put(nodeId, peerTotal);
+            return peerTotal - (seen != null ? seen : 0L);
+        }
+    }
+}
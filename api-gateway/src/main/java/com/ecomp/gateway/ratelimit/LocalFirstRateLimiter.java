@@ -0,0 +1,150 @@
+package com.ecomp.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Token-bucket limiter for the RequestRateLimiter route filter that answers from buckets held in
+ * this replica, so no request waits on the network. Every sync interval the tokens handed out
+ * here are reported to the {@link RateLimitStore} and the ones handed out by other replicas are
+ * taken off the local buckets, which keeps the limit cluster-wide within one interval of lag.
+ */
+@Slf4j
+public class LocalFirstRateLimiter extends AbstractRateLimiter<LocalFirstRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-first-rate-limiter";
+
+    private final RateLimitStore store;
+    private final Config defaultConfig;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Cache<String, Bucket> buckets;
+    private final Disposable sync;
+
+    public LocalFirstRateLimiter(ConfigurationService configurationService, RateLimitStore store, Config defaultConfig,
+                                 Duration syncInterval, Duration idleTimeout) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = store;
+        this.defaultConfig = defaultConfig;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .build();
+        this.sync = Flux.interval(syncInterval, syncInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcile(), 1)
+                .subscribe();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = configFor(routeId);
+        Bucket bucket = buckets.get(routeId + ":" + id, key -> new Bucket(config.getBurstCapacity()));
+        long remaining = bucket.tryConsume(config, System.nanoTime());
+        return Mono.just(new Response(remaining >= 0, Map.of(
+                "X-RateLimit-Remaining", String.valueOf(Math.max(remaining, 0)),
+                "X-RateLimit-Replenish-Rate", String.valueOf(config.getReplenishRate()),
+                "X-RateLimit-Burst-Capacity", String.valueOf(config.getBurstCapacity()))));
+    }
+
+    /**
+     * Reports local consumption and applies what the other replicas consumed meanwhile.
+     */
+    public Mono<Void> reconcile() {
+        Map<String, Long> consumed = new HashMap<>();
+        buckets.asMap().forEach((key, bucket) -> {
+            long tokens = bucket.drainUnsynced();
+            if (tokens > 0) {
+                consumed.put(key, tokens);
+            }
+        });
+        return store.exchange(nodeId, consumed)
+                .doOnNext(fromPeers -> fromPeers.forEach((key, tokens) -> {
+                    Config config = configFor(key.substring(0, key.indexOf(':')));
+                    buckets.get(key, k -> new Bucket(config.getBurstCapacity())).consumedElsewhere(tokens, config);
+                }))
+                .doOnError(e -> log.warn("Rate limit reconciliation failed, limiting locally: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    public void shutdown() {
+        sync.dispose();
+    }
+
+    private Config configFor(String routeId) {
+        Config config = getConfig().get(routeId);
+        if (config == null) {
+            config = getConfig().get(RouteDefinitionRouteLocator.DEFAULT_FILTERS);
+        }
+        return config != null ? config : defaultConfig;
+    }
+
+    @Data
+    @Validated
+    public static class Config {
+
+        @Min(1)
+        private int replenishRate = 20;
+
+        @Min(1)
+        private int burstCapacity = 40;
+
+        @Min(1)
+        private int requestedTokens = 1;
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+        private long unsynced;
+
+        Bucket(int capacity) {
+            this.tokens = capacity;
+        }
+
+        /**
+         * @return the tokens left after this request, or -1 when there were not enough
+         */
+        synchronized long tryConsume(Config config, long now) {
+            refill(config, now);
+            if (tokens < config.getRequestedTokens()) {
+                return -1;
+            }
+            tokens -= config.getRequestedTokens();
+            unsynced += config.getRequestedTokens();
+            return (long) tokens;
+        }
+
+        synchronized long drainUnsynced() {
+            long drained = unsynced;
+            unsynced = 0;
+            return drained;
+        }
+
+        // Debt is capped at one burst so a stale backlog cannot lock a key out for long
+        synchronized void consumedElsewhere(long consumed, Config config) {
+            refill(config, System.nanoTime());
+            tokens = Math.max(tokens - consumed, -config.getBurstCapacity());
+        }
+
+        private void refill(Config config, long now) {
+            tokens = Math.min(config.getBurstCapacity(),
+                    tokens + (now - refilledAt) / 1_000_000_000.0 * config.getReplenishRate());
+            refilledAt = now;
+        }
+    }
+}
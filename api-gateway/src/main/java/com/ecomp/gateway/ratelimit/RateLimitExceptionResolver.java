@@ -0,0 +1,26 @@
+package com.ecomp.gateway.ratelimit;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.schema.DataFetchingEnvironment;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+public class RateLimitExceptionResolver extends DataFetcherExceptionResolverAdapter {
+
+    @Override
+    protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
+        if (!(ex instanceof RateLimitedException limited)) {
+            return null;
+        }
+        return GraphqlErrorBuilder.newError(env)
+                .errorType(ErrorType.BAD_REQUEST)
+                .message(limited.getMessage())
+                .extensions(Map.of("retryAfterSeconds", limited.getRetryAfterSeconds()))
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecomp.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Where gateway replicas reconcile rate-limit consumption. Each replica periodically reports the
+ * tokens it handed out per key and learns how many the other replicas handed out meanwhile.
+ */
+public interface RateLimitStore {
+
+    /**
+     * @param nodeId   identifies the calling replica
+     * @param consumed tokens consumed per key on this replica since its previous exchange
+     * @return tokens consumed per key by the other replicas since this replica's previous exchange
+     */
+    Mono<Map<String, Long>> exchange(String nodeId, Map<String, Long> consumed);
+}
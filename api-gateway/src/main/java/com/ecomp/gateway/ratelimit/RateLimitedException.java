@@ -0,0 +1,14 @@
+package com.ecomp.gateway.ratelimit;
+
+import lombok.Getter;
+
+@Getter
+public class RateLimitedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,12 +1,28 @@
 package com.ecomp.gateway.resolver;
 
+import com.ecomp.gateway.cache.CacheRegion;
+import com.ecomp.gateway.cache.CatalogChangedEvent;
 import com.ecomp.gateway.client.MicroserviceClient;
 import com.ecomp.gateway.dto.GraphQLDtos.*;
+import com.ecomp.gateway.ratelimit.AuthRateLimiter;
+import com.ecomp.gateway.ratelimit.RateLimitedException;
+import com.ecomp.gateway.subscription.CartChangedEvent;
+import com.ecomp.gateway.subscription.QuestionAnsweredEvent;
+import com.ecomp.gateway.subscription.SubscriptionHub;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.ContextValue;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Controller;
@@ -14,13 +30,31 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class GraphQLResolver {
 
+    private static final int USER_BATCH_SIZE = 500;
+
+    private static final Set<String> NON_CATALOG_FIELDS = Set.of("__typename", "reviews", "countryInfo", "weatherInfo");
+
     private final MicroserviceClient client;
+    private final ApplicationEventPublisher events;
+    private final SubscriptionHub hub;
+    private final AuthRateLimiter rateLimiter;
+
+    @Value("${gateway.enrichment.timeout-ms:1500}")
+    private long enrichmentTimeoutMs;
 
     // ==================== QUERIES ====================
 
@@ -36,6 +70,21 @@ public class GraphQLResolver {
         return client.getServiceById(id);
     }
 
+    @QueryMapping
+    public Mono<List<Service>> servicesByIds(@Argument List<String> ids, DataFetchingFieldSelectionSet selectionSet) {
+        log.info("GraphQL Query: servicesByIds with {} id(s)", ids.size());
+        // Ask the catalog only for the fields the query selects
+        List<String> fields = selectionSet.getImmediateFields().stream()
+                .map(SelectedField::getName)
+                .filter(name -> !NON_CATALOG_FIELDS.contains(name))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!fields.contains("id")) {
+            fields.add("id");
+        }
+        return client.getServicesByIds(ids, fields);
+    }
+
     @QueryMapping
     public Mono<UserProfile> currentUserProfile(@AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Query: currentUserProfile");
@@ -63,33 +112,116 @@ public class GraphQLResolver {
         return client.getReviewsByService(serviceId);
     }
 
+    // ==================== SERVICE ENRICHMENT ====================
+    // Resolved only when selected and in parallel with the rest of the query; a slow source
+    // yields null after the timeout instead of holding back the whole response
+
+    @SchemaMapping(typeName = "Service")
+    public Mono<CountryInfo> countryInfo(Service service) {
+        if (service.getCountryInfo() != null) {
+            return Mono.just(service.getCountryInfo());
+        }
+        return withinBudget(client.getCountryInfo(service.getId()), "countryInfo", service.getId());
+    }
+
+    @SchemaMapping(typeName = "Service")
+    public Mono<WeatherInfo> weatherInfo(Service service) {
+        if (service.getWeatherInfo() != null) {
+            return Mono.just(service.getWeatherInfo());
+        }
+        return withinBudget(client.getWeatherInfo(service.getId()), "weatherInfo", service.getId());
+    }
+
+    @SchemaMapping(typeName = "Service")
+    public Mono<List<Review>> reviews(Service service) {
+        if (service.getReviews() != null) {
+            return Mono.just(service.getReviews());
+        }
+        return withinBudget(client.getReviewsByService(service.getId()).collectList(), "reviews", service.getId());
+    }
+
+    private <T> Mono<T> withinBudget(Mono<T> source, String field, String serviceId) {
+        return source.timeout(Duration.ofMillis(enrichmentTimeoutMs))
+                .doOnError(e -> log.warn("GraphQL field {} of service {} skipped: {}", field, serviceId, e.toString()))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    // ==================== AUTHORS ====================
+    // Every question and review in a response shares one batched user-service lookup
+
+    @BatchMapping(typeName = "ServiceQuestion", field = "user")
+    public Mono<Map<ServiceQuestion, UserSummary>> questionAuthors(List<ServiceQuestion> questions) {
+        return usersFor(questions, ServiceQuestion::getUserId);
+    }
+
+    @BatchMapping(typeName = "Review", field = "user")
+    public Mono<Map<Review, UserSummary>> reviewAuthors(List<Review> reviews) {
+        return usersFor(reviews, Review::getUserId);
+    }
+
+    private <T> Mono<Map<T, UserSummary>> usersFor(List<T> sources, Function<T, String> userId) {
+        List<String> ids = sources.stream()
+                .map(userId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return Flux.fromIterable(ids)
+                .buffer(USER_BATCH_SIZE)
+                .flatMap(client::getUsersByIds)
+                .flatMapIterable(Function.identity())
+                .collectMap(UserSummary::getKeycloakId)
+                .map(users -> {
+                    Map<T, UserSummary> bySource = new HashMap<>();
+                    for (T source : sources) {
+                        UserSummary user = users.get(userId.apply(source));
+                        if (user != null) {
+                            bySource.put(source, user);
+                        }
+                    }
+                    return bySource;
+                })
+                .timeout(Duration.ofMillis(enrichmentTimeoutMs))
+                .doOnError(e -> log.warn("GraphQL field user skipped for {} item(s): {}", sources.size(), e.toString()))
+                .onErrorResume(e -> Mono.just(Map.of()));
+    }
+
     // ==================== MUTATIONS ====================
 
     @MutationMapping
-    public Mono<Boolean> register(@Argument RegisterInput input) {
+    public Mono<Boolean> register(@Argument RegisterInput input,
+                                  @ContextValue(name = AuthRateLimiter.CLIENT_ADDRESS, required = false) String clientAddress) {
         log.info("GraphQL Mutation: register user {}", input.getUsername());
-        return client.register(input);
+        if (!rateLimiter.allow(clientAddress)) {
+            return Mono.error(new RateLimitedException("Too many registration attempts", rateLimiter.retryAfterSeconds()));
+        }
+        return client.register(input, clientAddress);
     }
 
     @MutationMapping
     public Mono<Service> createService(@Argument ServiceInput input, @AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: createService");
         String token = "Bearer " + jwt.getTokenValue();
-        return client.createService(input, token);
+        return client.createService(input, token)
+                .doOnSuccess(created -> events.publishEvent(CatalogChangedEvent.of(CacheRegion.CATALOG)));
     }
 
     @MutationMapping
     public Mono<Service> updateService(@Argument String id, @Argument ServiceInput input, @AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: updateService with id={}", id);
         String token = "Bearer " + jwt.getTokenValue();
-        return client.updateService(id, input, token);
+        return client.updateService(id, input, token)
+                .doOnSuccess(updated -> events.publishEvent(CatalogChangedEvent.of(CacheRegion.CATALOG)));
     }
 
     @MutationMapping
     public Mono<Boolean> deleteService(@Argument String id, @AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: deleteService with id={}", id);
         String token = "Bearer " + jwt.getTokenValue();
-        return client.deleteService(id, token);
+        return client.deleteService(id, token)
+                .doOnSuccess(deleted -> events.publishEvent(CatalogChangedEvent.of(CacheRegion.CATALOG)));
     }
 
     @MutationMapping
@@ -100,58 +232,96 @@ public class GraphQLResolver {
     }
 
     @MutationMapping
-    public Mono<CartItem> addToCart(@Argument String serviceId, @Argument Integer quantity, @AuthenticationPrincipal Jwt jwt) {
-        log.info("GraphQL Mutation: addToCart serviceId={}, quantity={}", serviceId, quantity);
+    public Mono<CartItem> addToCart(@Argument String serviceId, @Argument Integer quantity, @Argument String date,
+                                    @AuthenticationPrincipal Jwt jwt) {
+        log.info("GraphQL Mutation: addToCart serviceId={}, quantity={}, date={}", serviceId, quantity, date);
         String token = "Bearer " + jwt.getTokenValue();
-        return client.addToCart(serviceId, quantity, token);
+        return client.addToCart(serviceId, quantity, date, token)
+                .doOnSuccess(item -> events.publishEvent(new CartChangedEvent(jwt.getSubject())));
     }
 
     @MutationMapping
     public Mono<CartItem> updateCartItemQuantity(@Argument String cartItemId, @Argument Integer quantity, @AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: updateCartItemQuantity cartItemId={}, quantity={}", cartItemId, quantity);
         String token = "Bearer " + jwt.getTokenValue();
-        return client.updateCartItemQuantity(cartItemId, quantity, token);
+        return client.updateCartItemQuantity(cartItemId, quantity, token)
+                .doOnSuccess(item -> events.publishEvent(new CartChangedEvent(jwt.getSubject())));
     }
 
     @MutationMapping
     public Mono<Boolean> removeFromCart(@Argument String cartItemId, @AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: removeFromCart cartItemId={}", cartItemId);
         String token = "Bearer " + jwt.getTokenValue();
-        return client.removeFromCart(cartItemId, token);
+        return client.removeFromCart(cartItemId, token)
+                .doOnSuccess(removed -> events.publishEvent(new CartChangedEvent(jwt.getSubject())));
     }
 
     @MutationMapping
     public Mono<Boolean> clearCart(@AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: clearCart");
         String token = "Bearer " + jwt.getTokenValue();
-        return client.clearCart(token);
+        return client.clearCart(token)
+                .doOnSuccess(cleared -> events.publishEvent(new CartChangedEvent(jwt.getSubject())));
     }
 
     @MutationMapping
     public Mono<Boolean> checkoutCart(@AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: checkoutCart");
         String token = "Bearer " + jwt.getTokenValue();
-        return client.checkout(token);
+        // A rejected checkout may still have repriced or pruned the cart
+        return client.checkout(token)
+                .doOnSuccess(completed -> events.publishEvent(new CartChangedEvent(jwt.getSubject())));
     }
 
     @MutationMapping
     public Mono<Review> createReview(@Argument ReviewInput input, @AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: createReview serviceId={}", input.getServiceId());
         String token = "Bearer " + jwt.getTokenValue();
-        return client.createReview(input, token);
+        // A review also moves the service rating shown in catalog responses
+        return client.createReview(input, token)
+                .doOnSuccess(review -> events.publishEvent(CatalogChangedEvent.of(CacheRegion.REVIEWS, CacheRegion.CATALOG)));
     }
 
     @MutationMapping
     public Mono<ServiceQuestion> askQuestion(@Argument QuestionInput input, @AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: askQuestion serviceId={}", input.getServiceId());
         String token = "Bearer " + jwt.getTokenValue();
-        return client.askQuestion(input, token);
+        return client.askQuestion(input, token)
+                .doOnSuccess(question -> events.publishEvent(CatalogChangedEvent.of(CacheRegion.CATALOG)));
     }
 
     @MutationMapping
     public Mono<ServiceQuestion> answerQuestion(@Argument String questionId, @Argument String answer, @AuthenticationPrincipal Jwt jwt) {
         log.info("GraphQL Mutation: answerQuestion questionId={}", questionId);
         String token = "Bearer " + jwt.getTokenValue();
-        return client.answerQuestion(questionId, answer, token);
+        return client.answerQuestion(questionId, answer, token)
+                .doOnSuccess(question -> {
+                    events.publishEvent(CatalogChangedEvent.of(CacheRegion.CATALOG));
+                    if (question != null && question.getServiceId() != null) {
+                        events.publishEvent(new QuestionAnsweredEvent(question));
+                    }
+                });
+    }
+
+    // ==================== SUBSCRIPTIONS ====================
+
+    @SubscriptionMapping
+    public Flux<CartSnapshot> cartChanged(@AuthenticationPrincipal Jwt jwt) {
+        log.info("GraphQL Subscription: cartChanged");
+        if (jwt == null) {
+            // Reported to the client as an UNAUTHORIZED GraphQL error
+            throw new AuthenticationCredentialsNotFoundException("Sign in to follow cart changes");
+        }
+        String token = "Bearer " + jwt.getTokenValue();
+        // One snapshot at a time; changes that arrive meanwhile collapse into the next fetch
+        return hub.cartChanges(jwt.getSubject())
+                .concatMap(change -> Mono.zip(client.getMyCart(token).collectList(), client.getCartTotal(token))
+                        .map(cart -> new CartSnapshot(cart.getT1(), cart.getT2())), 1);
+    }
+
+    @SubscriptionMapping
+    public Flux<ServiceQuestion> questionAnswered(@Argument String serviceId) {
+        log.info("GraphQL Subscription: questionAnswered serviceId={}", serviceId);
+        return hub.answeredQuestions(serviceId);
     }
 }
@@ -0,0 +1,11 @@
+package com.ecomp.gateway.subscription;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class CartChangedEvent {
+
+    private final String userId;
+}
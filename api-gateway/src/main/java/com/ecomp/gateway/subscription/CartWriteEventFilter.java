@@ -0,0 +1,44 @@
+package com.ecomp.gateway.subscription;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+
+// Cart writes made through the REST route notify cartChanged subscribers too; ordered ahead of the
+// route's StripPrefix, which runs at order 1 and would hide the /api prefix matched below
+@Component
+@RequiredArgsConstructor
+public class CartWriteEventFilter implements GlobalFilter, Ordered {
+
+    private final ApplicationEventPublisher events;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (exchange.getRequest().getMethod() == HttpMethod.GET
+                || !exchange.getRequest().getPath().value().startsWith("/api/cart")) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("")
+                .flatMap(userId -> chain.filter(exchange).doOnSuccess(done -> {
+                    if (!userId.isEmpty() && exchange.getResponse().getStatusCode() != null
+                            && exchange.getResponse().getStatusCode().is2xxSuccessful()) {
+                        events.publishEvent(new CartChangedEvent(userId));
+                    }
+                }));
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
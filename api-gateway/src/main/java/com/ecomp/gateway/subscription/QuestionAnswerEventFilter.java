@@ -0,0 +1,78 @@
+package com.ecomp.gateway.subscription;
+
+import com.ecomp.gateway.dto.GraphQLDtos.ServiceQuestion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Answers given through the REST route notify questionAnswered subscribers too. The event needs
+ * the answered question, so the catalog's response body is read on its way to the client;
+ * ordered ahead of the filter that writes that body.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionAnswerEventFilter implements GlobalFilter, Ordered {
+
+    private static final Pattern ANSWER_PATH = Pattern.compile("/api/questions/[^/]+/answer");
+
+    private final ApplicationEventPublisher events;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (exchange.getRequest().getMethod() != HttpMethod.PUT
+                || !ANSWER_PATH.matcher(exchange.getRequest().getPath().value()).matches()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpResponseDecorator response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                if (getStatusCode() == null || !getStatusCode().is2xxSuccessful()) {
+                    return super.writeWith(body);
+                }
+                return DataBufferUtils.join(body).flatMap(joined -> {
+                    byte[] bytes = new byte[joined.readableByteCount()];
+                    joined.read(bytes);
+                    DataBufferUtils.release(joined);
+                    publish(bytes);
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                });
+            }
+        };
+        return chain.filter(exchange.mutate().response(response).build());
+    }
+
+    private void publish(byte[] body) {
+        try {
+            ServiceQuestion question = objectMapper.readValue(body, ServiceQuestion.class);
+            if (question.getServiceId() != null) {
+                events.publishEvent(new QuestionAnsweredEvent(question));
+            }
+        } catch (IOException e) {
+            log.warn("Answered question could not be read for subscribers: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+}
@@ -0,0 +1,12 @@
+package com.ecomp.gateway.subscription;
+
+import com.ecomp.gateway.dto.GraphQLDtos.ServiceQuestion;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class QuestionAnsweredEvent {
+
+    private final ServiceQuestion question;
+}
@@ -0,0 +1,24 @@
+package com.ecomp.gateway.subscription;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.graphql.execution.SubscriptionExceptionResolverAdapter;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+// Subscription errors bypass the data fetcher resolvers, so sign-in failures are mapped here
+@Component
+public class SubscriptionAuthExceptionResolver extends SubscriptionExceptionResolverAdapter {
+
+    @Override
+    protected GraphQLError resolveToSingleError(Throwable ex) {
+        if (!(ex instanceof AuthenticationException)) {
+            return null;
+        }
+        return GraphqlErrorBuilder.newError()
+                .errorType(ErrorType.UNAUTHORIZED)
+                .message(ex.getMessage())
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecomp.gateway.subscription;
+
+import com.ecomp.gateway.dto.GraphQLDtos.ServiceQuestion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Fans change events out to GraphQL subscribers. The sinks never wait for a slow subscriber;
+ * each subscriber absorbs its own backlog, so one stalled socket cannot hold back the rest.
+ *
+ * Events are the application events of this gateway instance, raised by the mutations and the
+ * REST writes it served. With several gateway replicas a subscriber only hears about changes made through
+ * the replica it is connected to, and never about writes that bypass the gateway.
+ */
+@Component
+@Slf4j
+public class SubscriptionHub {
+
+    private final Sinks.Many<CartChangedEvent> cartEvents = Sinks.many().multicast().directBestEffort();
+    private final Sinks.Many<QuestionAnsweredEvent> questionEvents = Sinks.many().multicast().directBestEffort();
+
+    @Value("${gateway.subscriptions.buffer-size:64}")
+    private int bufferSize;
+
+    @EventListener
+    public void onCartChanged(CartChangedEvent event) {
+        emit(cartEvents, event);
+    }
+
+    @EventListener
+    public void onQuestionAnswered(QuestionAnsweredEvent event) {
+        emit(questionEvents, event);
+    }
+
+    // Only the newest state matters for a cart, so a slow subscriber keeps just the latest change
+    public Flux<CartChangedEvent> cartChanges(String userId) {
+        return cartEvents.asFlux()
+                .filter(event -> userId.equals(event.getUserId()))
+                .onBackpressureLatest();
+    }
+
+    public Flux<ServiceQuestion> answeredQuestions(String serviceId) {
+        return questionEvents.asFlux()
+                .map(QuestionAnsweredEvent::getQuestion)
+                .filter(question -> serviceId.equals(question.getServiceId()))
+                .onBackpressureBuffer(bufferSize,
+                        dropped -> log.debug("Dropped answer {} for a slow subscriber", dropped.getId()),
+                        BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    private <T> void emit(Sinks.Many<T> sink, T event) {
+        Sinks.EmitResult result;
+        // Events arrive from many request threads and a sink takes one emission at a time; delivery
+        // only hands the event to each subscriber's own buffer, so the lock is held briefly
+        synchronized (sink) {
+            result = sink.tryEmitNext(event);
+        }
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            log.warn("Dropped {} for subscribers: {}", event.getClass().getSimpleName(), result);
+        }
+    }
+}
@@ -0,0 +1,673 @@
+package com.ecomp.gateway;
+
+import com.ecomp.gateway.client.DownstreamGuard;
+import com.ecomp.gateway.client.HedgedRequests;
+import com.ecomp.gateway.client.RequestCoalescer;
+import com.ecomp.gateway.dto.GraphQLDtos.ServiceQuestion;
+import com.ecomp.gateway.graphql.QueryCostInstrumentation;
+import com.ecomp.gateway.loadbalancer.PeakEwmaLoadBalancer;
+import com.ecomp.gateway.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import com.ecomp.gateway.ratelimit.GraphQlRateLimitFilter;
+import com.ecomp.gateway.ratelimit.InMemoryRateLimitStore;
+import com.ecomp.gateway.ratelimit.LocalFirstRateLimiter;
+import com.ecomp.gateway.ratelimit.RateLimitStore;
+import com.ecomp.gateway.subscription.QuestionAnswerEventFilter;
+import com.ecomp.gateway.subscription.QuestionAnsweredEvent;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryProperties;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClientsProperties;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.cloud.loadbalancer.config.LoadBalancerZoneConfig;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiGatewayTest {
+
+    private static final String ROUTE = "catalog";
+    private static final String KEY = "user:user-123";
+    private static final String INSTANCE_A = "10.0.0.1";
+    private static final String INSTANCE_B = "10.0.0.2";
+    private static final String INSTANCE_C = "10.0.0.3";
+
+    private final RateLimitStore store = new InMemoryRateLimitStore(Duration.ofMinutes(10));
+    private final List<LocalFirstRateLimiter> limiters = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        limiters.forEach(LocalFirstRateLimiter::shutdown);
+    }
+
+    @Test
+    void rateLimiter_BurstSpent_RefillsAtReplenishRate() throws Exception {
+        LocalFirstRateLimiter limiter = newLimiter(50, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(allowed(limiter));
+        }
+        assertFalse(allowed(limiter));
+
+        // 50 tokens/s: one token is back after 20ms
+        Thread.sleep(100);
+        assertTrue(allowed(limiter));
+    }
+
+    @Test
+    void rateLimiter_SharedStore_PeerConsumptionTakenOffLocalBucket() {
+        LocalFirstRateLimiter first = newLimiter(1, 5);
+        LocalFirstRateLimiter second = newLimiter(1, 5);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(allowed(first));
+        }
+        first.reconcile().block();
+        second.reconcile().block();
+
+        // The second replica has only the one token the first left unspent
+        assertTrue(allowed(second));
+        assertFalse(allowed(second));
+        // and the first hears about it on its next exchange
+        second.reconcile().block();
+        first.reconcile().block();
+        assertFalse(allowed(first));
+    }
+
+    @Test
+    void rateLimiter_PeerBacklog_DebtCappedAtOneBurst() throws Exception {
+        LocalFirstRateLimiter peer = newLimiter(50, 200);
+        LocalFirstRateLimiter limiter = newLimiter(50, 5);
+        for (int i = 0; i < 200; i++) {
+            peer.isAllowed(ROUTE, KEY).block();
+        }
+        peer.reconcile().block();
+        limiter.reconcile().block();
+        assertFalse(allowed(limiter));
+
+        // Uncapped, 200 tokens of debt would take 4s to repay; capped at -5 it takes about 120ms
+        Thread.sleep(300);
+        assertTrue(allowed(limiter));
+    }
+
+    @Test
+    void rateLimitStore_PeerConsumption_ReportedOnce() {
+        store.exchange("node-a", Map.of(KEY, 3L)).block();
+
+        assertEquals(Map.of(KEY, 3L), store.exchange("node-b", Map.of()).block());
+        assertEquals(Map.of(), store.exchange("node-b", Map.of()).block());
+        // A node is never told about its own consumption
+        assertEquals(Map.of(), store.exchange("node-a", Map.of()).block());
+    }
+
+    @Test
+    void graphQlRateLimit_BurstSpent_Returns429() {
+        GraphQlRateLimitFilter filter = new GraphQlRateLimitFilter(newLimiter(1, 2),
+                exchange -> Mono.just("address:10.0.0.1"), "/graphql");
+        AtomicInteger passed = new AtomicInteger();
+
+        List<HttpStatus> statuses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/graphql"));
+            filter.filter(exchange, e -> Mono.fromRunnable(passed::incrementAndGet)).block();
+            statuses.add((HttpStatus) exchange.getResponse().getStatusCode());
+        }
+
+        assertEquals(2, passed.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, statuses.get(2));
+        // Other paths are left to the route filters
+        MockServerWebExchange other = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health"));
+        filter.filter(other, e -> Mono.fromRunnable(passed::incrementAndGet)).block();
+        assertEquals(3, passed.get());
+    }
+
+    @Test
+    void questionAnswerFilter_RestAnswer_PublishedAndPassedThrough() {
+        List<Object> published = new ArrayList<>();
+        QuestionAnswerEventFilter filter = new QuestionAnswerEventFilter(published::add,
+                Jackson2ObjectMapperBuilder.json().build());
+        String json = "{\"id\":\"q-1\",\"serviceId\":\"svc-1\",\"answer\":\"Yes\",\"answeredAt\":\"2024-05-01T10:00:00\"}";
+        GatewayFilterChain catalog = exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return exchange.getResponse().writeWith(Mono.just(
+                    exchange.getResponse().bufferFactory().wrap(json.getBytes(StandardCharsets.UTF_8))));
+        };
+
+        MockServerWebExchange answer = MockServerWebExchange.from(MockServerHttpRequest.put("/api/questions/q-1/answer"));
+        filter.filter(answer, catalog).block();
+
+        assertEquals(json, answer.getResponse().getBodyAsString().block());
+        assertEquals(1, published.size());
+        ServiceQuestion question = ((QuestionAnsweredEvent) published.get(0)).getQuestion();
+        assertEquals("svc-1", question.getServiceId());
+        assertEquals("Yes", question.getAnswer());
+
+        // Asking is not answering
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/questions")), catalog).block();
+        assertEquals(1, published.size());
+        // Must see the body before the gateway writes it to the client
+        assertTrue(filter.getOrder() < NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER);
+    }
+
+    @Test
+    void queryCost_ListsNestedInServices_PaidPerService() throws Exception {
+        GraphQL graphQL = costCheckedGraphQL();
+
+        ExecutionResult nested = graphQL.execute("{ services { reviews { id } questions { id } } }");
+        assertEquals(List.of("Query cost 950 exceeds the limit of 500"),
+                nested.getErrors().stream().map(GraphQLError::getMessage).toList());
+
+        // What the catalog page asks for stays well within budget
+        ExecutionResult listing = graphQL.execute("{ services { id name price images { id imageUrl } } }");
+        assertTrue(listing.getErrors().stream().noneMatch(error -> error.getMessage().startsWith("Query cost")));
+    }
+
+    @Test
+    void queryCost_ServicesByIds_SizedByRequestedIds() throws Exception {
+        GraphQL graphQL = costCheckedGraphQL();
+
+        ExecutionResult few = graphQL.execute("{ servicesByIds(ids: [\"a\", \"b\"]) { reviews { id } } }");
+        assertTrue(few.getErrors().stream().noneMatch(error -> error.getMessage().startsWith("Query cost")));
+
+        // 5 + 20 x (1 + 5 + 20) = 525
+        String ids = String.join(", ", Collections.nCopies(20, "\"id\""));
+        ExecutionResult many = graphQL.execute("{ servicesByIds(ids: [" + ids + "]) { reviews { id } } }");
+        assertEquals("Query cost 525 exceeds the limit of 500", many.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void coalescer_ConcurrentSameKey_ShareOneUpstreamCall() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RequestCoalescer coalescer = new RequestCoalescer(registry, true);
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+        Supplier<Mono<String>> call = () -> upstream.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 3; i++) {
+            coalescer.mono("service", "svc-1", call).subscribe(results::add);
+        }
+        // A different key goes downstream on its own
+        coalescer.mono("service", "svc-2", () -> Mono.just("other")).subscribe(results::add);
+        upstream.tryEmitValue("svc-1");
+
+        assertEquals(1, subscriptions.get());
+        assertEquals(List.of("other", "svc-1", "svc-1", "svc-1"), results);
+        assertEquals(2.0, registry.get("gateway.client.coalesced").tag("outcome", "leader").counter().count());
+        assertEquals(2.0, registry.get("gateway.client.coalesced").tag("outcome", "joined").counter().count());
+    }
+
+    @Test
+    void coalescer_FlightFinished_NextCallGoesDownstream() {
+        RequestCoalescer coalescer = new RequestCoalescer(new SimpleMeterRegistry(), true);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, coalescer.mono("service", "svc-1", () -> Mono.fromCallable(calls::incrementAndGet)).block());
+        assertEquals(2, coalescer.mono("service", "svc-1", () -> Mono.fromCallable(calls::incrementAndGet)).block());
+
+        // A failure is not remembered either
+        Mono<Integer> failing = coalescer.mono("service", "svc-2",
+                () -> Mono.error(new IllegalStateException("catalog down")));
+        assertThrows(IllegalStateException.class, failing::block);
+        assertEquals(3, coalescer.mono("service", "svc-2", () -> Mono.fromCallable(calls::incrementAndGet)).block());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coalescer_OldFlightFinishing_KeepsNewerFlight() {
+        RequestCoalescer coalescer = new RequestCoalescer(new SimpleMeterRegistry(), true);
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.One<String> first = Sinks.one();
+        Sinks.One<String> second = Sinks.one();
+
+        coalescer.mono("service", "svc-1", () -> first.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet()))
+                .subscribe();
+        // The first flight's entry has already been replaced by a newer one
+        ((Map<String, Mono<?>>) ReflectionTestUtils.getField(coalescer, "inFlight")).clear();
+        Mono<String> newer = coalescer.mono("service", "svc-1",
+                () -> second.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet()));
+        newer.subscribe();
+        first.tryEmitValue("old");
+
+        // Still joins the newer flight instead of starting a third one
+        AtomicReference<String> joined = new AtomicReference<>();
+        coalescer.mono("service", "svc-1", () -> Mono.just("third")).subscribe(joined::set);
+        second.tryEmitValue("new");
+        assertEquals("new", joined.get());
+        assertEquals(2, subscriptions.get());
+    }
+
+    @Test
+    void downstreamGuard_Timeout_FollowsP99TimesMultiplier() {
+        // The first call through WebClient pays for class loading and would be the whole p99 of 20 samples
+        get(guardedClient(newGuard(CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(),
+                new SimpleMeterRegistry()), request -> Mono.just(ok()))).block();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DownstreamGuard guard = newGuard(CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(), registry);
+        AtomicLong delayMs = new AtomicLong(40);
+        WebClient client = guardedClient(guard, request -> Mono.delay(Duration.ofMillis(delayMs.get())).thenReturn(ok()));
+
+        Flux.range(0, 19).flatMap(i -> get(client)).blockLast();
+        // Too few samples for a p99 yet
+        assertEquals(2000.0, timeoutMillis(registry));
+
+        get(client).block();
+        double learned = timeoutMillis(registry);
+        assertTrue(learned >= 40 * 1.5 && learned < 200 * 1.5, "timeout was " + learned);
+
+        // A call slower than the learned limit is cut off instead of waiting the initial 2s
+        delayMs.set(1000);
+        Throwable error = assertThrows(RuntimeException.class, () -> get(client).block());
+        assertInstanceOf(TimeoutException.class, Exceptions.unwrap(error));
+    }
+
+    @Test
+    void downstreamGuard_ServerErrors_CountAsBreakerFailures() {
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .build());
+        AtomicInteger status = new AtomicInteger(200);
+        WebClient client = guardedClient(newGuard(breakers, BulkheadRegistry.ofDefaults(), new SimpleMeterRegistry()),
+                request -> Mono.just(ClientResponse.create(HttpStatus.valueOf(status.get())).body("body").build()));
+
+        get(client).block();
+        status.set(503);
+        assertThrows(WebClientResponseException.ServiceUnavailable.class, () -> get(client).block());
+        // 4xx is the caller's problem, not the downstream's
+        status.set(404);
+        assertThrows(WebClientResponseException.NotFound.class, () -> get(client).block());
+        assertEquals(1, breakers.circuitBreaker("catalog").getMetrics().getNumberOfFailedCalls());
+
+        status.set(500);
+        assertThrows(WebClientResponseException.InternalServerError.class, () -> get(client).block());
+        assertEquals(CircuitBreaker.State.OPEN, breakers.circuitBreaker("catalog").getState());
+    }
+
+    @Test
+    void downstreamGuard_OpenBreaker_FailsFastWithoutCallingDownstream() {
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.ofDefaults();
+        AtomicInteger calls = new AtomicInteger();
+        WebClient client = guardedClient(newGuard(breakers, BulkheadRegistry.ofDefaults(), new SimpleMeterRegistry()),
+                request -> Mono.fromCallable(() -> {
+                    calls.incrementAndGet();
+                    return ok();
+                }));
+
+        breakers.circuitBreaker("catalog").transitionToOpenState();
+
+        assertThrows(CallNotPermittedException.class, () -> get(client).block());
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void downstreamGuard_BulkheadFull_RejectsUntilACallEnds() {
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(2)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        AtomicBoolean hang = new AtomicBoolean(true);
+        WebClient client = guardedClient(newGuard(CircuitBreakerRegistry.ofDefaults(), bulkheads, new SimpleMeterRegistry()),
+                request -> hang.get() ? Mono.never() : Mono.just(ok()));
+
+        Disposable first = get(client).subscribe();
+        Disposable second = get(client).subscribe();
+        hang.set(false);
+        assertThrows(BulkheadFullException.class, () -> get(client).block());
+
+        // A cancelled call gives its slot back
+        first.dispose();
+        assertEquals("ok", get(client).block());
+        second.dispose();
+    }
+
+    @Test
+    void hedging_PrimaryWithinP95_NoHedgeSent() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HedgedRequests hedging = newHedging(registry, 100);
+        Map<String, Long> delays = new ConcurrentHashMap<>(Map.of(INSTANCE_A, 30L, INSTANCE_B, 30L, INSTANCE_C, 30L));
+        List<String> hosts = Collections.synchronizedList(new ArrayList<>());
+        WebClient client = hedgedClient(delays, hosts);
+        warmUp(hedging, client);
+
+        delays.put(INSTANCE_B, 0L);
+        hosts.clear();
+        assertEquals(INSTANCE_B, hedgedGet(hedging, client).block());
+
+        assertEquals(List.of(INSTANCE_B), hosts);
+        assertNull(registry.find("gateway.client.hedges").counter());
+    }
+
+    @Test
+    void hedging_SlowPrimary_HedgeSentToAnotherInstanceAfterP95() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HedgedRequests hedging = newHedging(registry, 100);
+        Map<String, Long> delays = new ConcurrentHashMap<>(Map.of(INSTANCE_A, 30L, INSTANCE_B, 30L, INSTANCE_C, 30L));
+        List<String> hosts = Collections.synchronizedList(new ArrayList<>());
+        WebClient client = hedgedClient(delays, hosts);
+        warmUp(hedging, client);
+
+        delays.put(INSTANCE_B, 1000L);
+        // Enough rounds that a random pick would have landed on the primary at least once
+        for (int i = 0; i < 10; i++) {
+            hosts.clear();
+            long start = System.nanoTime();
+            String winner = hedgedGet(hedging, client).block();
+            long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+            assertNotEquals(INSTANCE_B, winner);
+            assertEquals(INSTANCE_B, hosts.get(0));
+            assertEquals(2, hosts.size());
+            // Sent after the p95 of the 30ms warm-up calls, then answered in another 30ms
+            assertTrue(elapsedMs >= 60 && elapsedMs < 1000, "took " + elapsedMs + "ms");
+        }
+        assertEquals(10.0, registry.get("gateway.client.hedges").tag("outcome", "won").counter().count());
+    }
+
+    @Test
+    void hedging_BudgetSpent_HedgeDenied() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HedgedRequests hedging = newHedging(registry, 0);
+        Map<String, Long> delays = new ConcurrentHashMap<>(Map.of(INSTANCE_A, 30L, INSTANCE_B, 30L, INSTANCE_C, 30L));
+        List<String> hosts = Collections.synchronizedList(new ArrayList<>());
+        WebClient client = hedgedClient(delays, hosts);
+        warmUp(hedging, client);
+
+        delays.put(INSTANCE_B, 200L);
+        hosts.clear();
+        assertEquals(INSTANCE_B, hedgedGet(hedging, client).block());
+
+        assertEquals(List.of(INSTANCE_B), hosts);
+        assertEquals(1.0, registry.get("gateway.client.hedges").tag("outcome", "denied").counter().count());
+    }
+
+    @Test
+    void hedging_FailedHedge_PrimaryStillWins() {
+        HedgedRequests hedging = newHedging(new SimpleMeterRegistry(), 100);
+        Map<String, Long> delays = new ConcurrentHashMap<>(Map.of(INSTANCE_A, 30L, INSTANCE_B, 30L, INSTANCE_C, 30L));
+        List<String> hosts = Collections.synchronizedList(new ArrayList<>());
+        WebClient client = hedgedClient(delays, hosts);
+        warmUp(hedging, client);
+
+        // Negative delay: that instance answers 503 straight away
+        delays.putAll(Map.of(INSTANCE_A, -1L, INSTANCE_B, 200L, INSTANCE_C, -1L));
+        hosts.clear();
+        assertEquals(INSTANCE_B, hedgedGet(hedging, client).block());
+        assertEquals(2, hosts.size());
+    }
+
+    @Test
+    void loadBalancer_TwoChoices_PreferLowerLatencyTimesOutstanding() {
+        ServiceInstance a = instance(INSTANCE_A, "zone-a");
+        ServiceInstance b = instance(INSTANCE_B, "zone-a");
+        PeakEwmaLoadBalancer balancer = newBalancer(() -> List.of(a, b), Duration.ZERO);
+        choose(balancer);
+
+        // A's peak latency is taken at once
+        recordCall(balancer, a, Duration.ofMillis(500));
+        assertEquals(Set.of(INSTANCE_B), hostsChosen(balancer, 20));
+
+        // A at 100ms and idle costs less than B at the default 50ms with two calls in flight
+        PeakEwmaLoadBalancer loaded = newBalancer(() -> List.of(a, b), Duration.ZERO);
+        choose(loaded);
+        recordCall(loaded, a, Duration.ofMillis(100));
+        assertEquals(Set.of(INSTANCE_B), hostsChosen(loaded, 20));
+        for (int i = 0; i < 2; i++) {
+            loaded.onStartRequest(new DefaultRequest<>(new RequestDataContext()), new DefaultResponse(b));
+        }
+        assertEquals(Set.of(INSTANCE_A), hostsChosen(loaded, 20));
+    }
+
+    @Test
+    void loadBalancer_NewInstance_SlowStarted() throws InterruptedException {
+        ServiceInstance a = instance(INSTANCE_A, "zone-a");
+        ServiceInstance c = instance(INSTANCE_C, "zone-a");
+        AtomicReference<List<ServiceInstance>> instances = new AtomicReference<>(List.of(a));
+        PeakEwmaLoadBalancer balancer = newBalancer(instances::get, Duration.ofMillis(300));
+        choose(balancer);
+        // Busy enough that a warm C would win
+        for (int i = 0; i < 4; i++) {
+            balancer.onStartRequest(new DefaultRequest<>(new RequestDataContext()), new DefaultResponse(a));
+        }
+
+        instances.set(List.of(a, c));
+        assertEquals(Set.of(INSTANCE_A), hostsChosen(balancer, 20));
+
+        Thread.sleep(350);
+        assertEquals(Set.of(INSTANCE_C), hostsChosen(balancer, 20));
+    }
+
+    @Test
+    void loadBalancer_ZonePreference_FallsBackWhenLocalZoneEmpty() {
+        SimpleReactiveDiscoveryProperties discovery = new SimpleReactiveDiscoveryProperties();
+        discovery.setInstances(Map.of("catalog", List.of(instance(INSTANCE_A, "zone-a"),
+                instance(INSTANCE_B, "zone-a"), instance(INSTANCE_C, "zone-b"))));
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("loadbalancer",
+                Map.of(LoadBalancerClientFactory.PROPERTY_NAME, "catalog")));
+        context.registerBean(ReactiveDiscoveryClient.class, () -> new SimpleReactiveDiscoveryClient(discovery));
+        context.registerBean(LoadBalancerZoneConfig.class, () -> new LoadBalancerZoneConfig("zone-a"));
+        context.registerBean(LoadBalancerClientFactory.class,
+                () -> new LoadBalancerClientFactory(new LoadBalancerClientsProperties()));
+        context.refresh();
+        ServiceInstanceListSupplier supplier = new PeakEwmaLoadBalancerConfiguration()
+                .zonePreferenceServiceInstanceListSupplier(context);
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("supplier", supplier);
+        PeakEwmaLoadBalancer balancer = new PeakEwmaLoadBalancer(beans.getBeanProvider(ServiceInstanceListSupplier.class),
+                Duration.ofSeconds(10), Duration.ZERO, Duration.ofMillis(50), Duration.ofSeconds(2));
+
+        assertEquals(Set.of(INSTANCE_A, INSTANCE_B), hostsChosen(balancer, 50));
+
+        discovery.setInstances(Map.of("catalog", List.of(instance(INSTANCE_C, "zone-b"))));
+        assertEquals(Set.of(INSTANCE_C), hostsChosen(balancer, 5));
+        context.close();
+    }
+
+    private static GraphQL costCheckedGraphQL() throws Exception {
+        try (InputStreamReader schema = new InputStreamReader(
+                new ClassPathResource("graphql/schema.graphqls").getInputStream(), StandardCharsets.UTF_8)) {
+            return GraphQL.newGraphQL(UnExecutableSchemaGenerator.makeUnExecutableSchema(new SchemaParser().parse(schema)))
+                    .instrumentation(new QueryCostInstrumentation(500, 8, 20, new SimpleMeterRegistry()))
+                    .build();
+        }
+    }
+
+    private LocalFirstRateLimiter newLimiter(int replenishRate, int burstCapacity) {
+        LocalFirstRateLimiter.Config config = new LocalFirstRateLimiter.Config();
+        config.setReplenishRate(replenishRate);
+        config.setBurstCapacity(burstCapacity);
+        ConfigurationService configurationService = new ConfigurationService(new DefaultListableBeanFactory(),
+                DefaultFormattingConversionService::new, () -> null);
+        // Reconciled by hand in the tests
+        LocalFirstRateLimiter limiter = new LocalFirstRateLimiter(configurationService, store, config,
+                Duration.ofHours(1), Duration.ofMinutes(10));
+        limiters.add(limiter);
+        return limiter;
+    }
+
+    private static DownstreamGuard newGuard(CircuitBreakerRegistry breakers, BulkheadRegistry bulkheads,
+                                            SimpleMeterRegistry registry) {
+        DownstreamGuard guard = new DownstreamGuard(breakers, bulkheads, registry);
+        ReflectionTestUtils.setField(guard, "initialTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(guard, "minTimeoutMs", 10L);
+        ReflectionTestUtils.setField(guard, "maxTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(guard, "p99Multiplier", 1.5);
+        ReflectionTestUtils.setField(guard, "window", 256);
+        return guard;
+    }
+
+    private static WebClient guardedClient(DownstreamGuard guard, ExchangeFunction downstream) {
+        return WebClient.builder().exchangeFunction(downstream).filter(guard.filter("catalog")).build();
+    }
+
+    private static Mono<String> get(WebClient client) {
+        return client.get().uri("http://catalog/services/svc-1").retrieve().bodyToMono(String.class);
+    }
+
+    private static ClientResponse ok() {
+        return ClientResponse.create(HttpStatus.OK).body("ok").build();
+    }
+
+    private static double timeoutMillis(SimpleMeterRegistry registry) {
+        return registry.get("gateway.downstream.timeout").tag("downstream", "catalog").gauge().value();
+    }
+
+    private static HedgedRequests newHedging(SimpleMeterRegistry registry, double budgetPercent) {
+        SimpleReactiveDiscoveryProperties discovery = new SimpleReactiveDiscoveryProperties();
+        discovery.setInstances(Map.of("catalog", Stream.of(INSTANCE_A, INSTANCE_B, INSTANCE_C)
+                .map(host -> new DefaultServiceInstance(host, "catalog", host, 8081, false))
+                .toList()));
+        HedgedRequests hedging = new HedgedRequests(new SimpleReactiveDiscoveryClient(discovery), registry);
+        ReflectionTestUtils.setField(hedging, "enabled", true);
+        ReflectionTestUtils.setField(hedging, "budgetPercent", budgetPercent);
+        ReflectionTestUtils.setField(hedging, "maxTokens", 10.0);
+        ReflectionTestUtils.setField(hedging, "minDelayMs", 20L);
+        return hedging;
+    }
+
+    /**
+     * The load balancer always picks instance B; each instance answers its own host name after
+     * its delay, or 503 when the delay is negative.
+     */
+    private static WebClient hedgedClient(Map<String, Long> delays, List<String> hosts) {
+        ExchangeFilterFunction loadBalancer = (request, next) -> next.exchange(ClientRequest.from(request)
+                .url(URI.create(request.url().toString().replace("lb://catalog", "http://" + INSTANCE_B + ":8081")))
+                .build());
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    String host = request.url().getHost();
+                    hosts.add(host);
+                    long delay = delays.get(host);
+                    return delay < 0
+                            ? Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build())
+                            : Mono.delay(Duration.ofMillis(delay)).thenReturn(ClientResponse.create(HttpStatus.OK).body(host).build());
+                })
+                .filter(loadBalancer)
+                .filter(HedgedRequests.primaryTarget())
+                .build();
+    }
+
+    private static Mono<String> hedgedGet(HedgedRequests hedging, WebClient client) {
+        return hedging.get("serviceById", "catalog", "lb://catalog",
+                baseUrl -> client.get().uri(baseUrl + "/services/svc-1").retrieve().bodyToMono(String.class));
+    }
+
+    // Enough samples for a p95 of about 30ms; no hedging happens until then
+    private static void warmUp(HedgedRequests hedging, WebClient client) {
+        Flux.range(0, 20).flatMap(i -> hedgedGet(hedging, client)).blockLast();
+    }
+
+    private static PeakEwmaLoadBalancer newBalancer(Supplier<List<ServiceInstance>> instances, Duration slowStart) {
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return "catalog";
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.defer(() -> Flux.just(instances.get()));
+            }
+        };
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("supplier", supplier);
+        return new PeakEwmaLoadBalancer(beans.getBeanProvider(ServiceInstanceListSupplier.class),
+                Duration.ofSeconds(10), slowStart, Duration.ofMillis(50), Duration.ofSeconds(2));
+    }
+
+    private static DefaultServiceInstance instance(String host, String zone) {
+        return new DefaultServiceInstance(host, "catalog", host, 8081, false, Map.of("zone", zone));
+    }
+
+    private static ServiceInstance choose(PeakEwmaLoadBalancer balancer) {
+        return balancer.choose(new DefaultRequest<>()).block().getServer();
+    }
+
+    private static Set<String> hostsChosen(PeakEwmaLoadBalancer balancer, int picks) {
+        Set<String> hosts = new HashSet<>();
+        for (int i = 0; i < picks; i++) {
+            hosts.add(choose(balancer).getHost());
+        }
+        return hosts;
+    }
+
+    private static void recordCall(PeakEwmaLoadBalancer balancer, ServiceInstance instance, Duration rtt) {
+        RequestDataContext context = new RequestDataContext();
+        context.setRequestStartTime(System.nanoTime() - rtt.toNanos());
+        Request<Object> request = new DefaultRequest<>(context);
+        Response<ServiceInstance> response = new DefaultResponse(instance);
+        balancer.onStartRequest(request, response);
+        balancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, response));
+    }
+
+    private static boolean allowed(LocalFirstRateLimiter limiter) {
+        return limiter.isAllowed(ROUTE, KEY).block().isAllowed();
+    }
+}
@@ -0,0 +1,41 @@
+package com.ecomp.auth.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+public class WebClientConfig {
+
+    /**
+     * Single client for every Keycloak call. A bounded pool keeps connections warm across
+     * login bursts, and callers that cannot get a connection fail fast instead of queueing.
+     */
+    @Bean
+    public WebClient keycloakWebClient(WebClient.Builder webClientBuilder,
+                                       @Value("${keycloak.http.max-connections:200}") int maxConnections,
+                                       @Value("${keycloak.http.pending-acquire-timeout-ms:2000}") long pendingAcquireTimeoutMs,
+                                       @Value("${keycloak.http.max-idle-ms:30000}") long maxIdleMs,
+                                       @Value("${keycloak.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                       @Value("${keycloak.http.response-timeout-ms:5000}") long responseTimeoutMs) {
+        ConnectionProvider pool = ConnectionProvider.builder("keycloak")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .evictInBackground(Duration.ofMillis(maxIdleMs))
+                .build();
+        HttpClient httpClient = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -1,12 +1,16 @@
 package com.ecomp.auth.controller;
 
 import com.ecomp.auth.dto.AuthDtos.*;
+import com.ecomp.auth.ratelimit.LoginRateLimiter;
 import com.ecomp.auth.service.KeycloakAuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -17,14 +21,25 @@ import reactor.core.publisher.Mono;
 public class AuthController {
 
     private final KeycloakAuthService authService;
+    private final LoginRateLimiter rateLimiter;
 
     @PostMapping("/login")
-    public Mono<ResponseEntity<TokenResponse>> login(@RequestBody LoginRequest request) {
+    public Mono<ResponseEntity<TokenResponse>> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
         log.info("Login attempt for user: {}", request.getUsername());
+        String clientAddress = rateLimiter.clientAddress(httpRequest);
+        if (!rateLimiter.allowUsername(request.getUsername(), clientAddress)) {
+            log.warn("Login for user {} throttled after repeated failures", request.getUsername());
+            return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(rateLimiter.usernameRetryAfterSeconds()))
+                    .build());
+        }
         return authService.login(request)
                 .map(ResponseEntity::ok)
                 .onErrorResume(e -> {
                     log.error("Login failed: {}", e.getMessage());
+                    if (e instanceof WebClientResponseException.Unauthorized) {
+                        rateLimiter.recordFailure(request.getUsername(), clientAddress);
+                    }
                     return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
                 });
     }
@@ -0,0 +1,107 @@
+package com.ecomp.auth.ratelimit;
+
+import com.ecomp.common.security.ratelimit.SlidingWindowSketch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Two limits in front of Keycloak: attempts per client address, and failed logins per username
+ * from one address. Failures are keyed by username and address together, so guessing from
+ * elsewhere never locks the owner out of an account; guessing spread over many addresses is
+ * only slowed by the per-address limit.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final SlidingWindowSketch attemptsByAddress;
+    private final SlidingWindowSketch failuresByUsername;
+    private final List<IpAddressMatcher> trustedProxies;
+    private final Counter rejectedByAddress;
+    private final Counter rejectedByUsername;
+
+    @Value("${auth.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.rate-limit.max-requests-per-address:30}")
+    private long maxRequestsPerAddress;
+
+    @Value("${auth.rate-limit.max-failures-per-username:5}")
+    private long maxFailuresPerUsername;
+
+    public LoginRateLimiter(MeterRegistry meterRegistry,
+                            @Value("${auth.rate-limit.address-window-seconds:60}") long addressWindowSeconds,
+                            @Value("${auth.rate-limit.username-window-seconds:900}") long usernameWindowSeconds,
+                            @Value("${auth.rate-limit.sketch-width:16384}") int sketchWidth,
+                            @Value("${auth.rate-limit.trusted-proxies:127.0.0.1,::1}") List<String> trustedProxies) {
+        this.attemptsByAddress = new SlidingWindowSketch(sketchWidth, Duration.ofSeconds(addressWindowSeconds));
+        this.failuresByUsername = new SlidingWindowSketch(sketchWidth, Duration.ofSeconds(usernameWindowSeconds));
+        this.rejectedByAddress = Counter.builder("auth.rate-limit.rejected").tag("limit", "address").register(meterRegistry);
+        this.trustedProxies = trustedProxies.stream().map(String::trim).filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new).toList();
+        this.rejectedByUsername = Counter.builder("auth.rate-limit.rejected").tag("limit", "username").register(meterRegistry);
+    }
+
+    public boolean allowAddress(String clientAddress) {
+        if (!enabled || attemptsByAddress.tryAcquire(clientAddress, maxRequestsPerAddress)) {
+            return true;
+        }
+        rejectedByAddress.increment();
+        return false;
+    }
+
+    public boolean allowUsername(String username, String clientAddress) {
+        if (!enabled || username == null || failuresByUsername.estimate(failureKey(username, clientAddress)) < maxFailuresPerUsername) {
+            return true;
+        }
+        rejectedByUsername.increment();
+        return false;
+    }
+
+    public void recordFailure(String username, String clientAddress) {
+        if (username != null) {
+            failuresByUsername.record(failureKey(username, clientAddress));
+        }
+    }
+
+    public long addressRetryAfterSeconds() {
+        return attemptsByAddress.retryAfterSeconds();
+    }
+
+    public long usernameRetryAfterSeconds() {
+        return failuresByUsername.retryAfterSeconds();
+    }
+
+    /**
+     * The peer address, or, when the peer is a trusted proxy such as the gateway, the address it
+     * appended to X-Forwarded-For. Entries further left come from the client and are ignored, as
+     * is the whole header when anyone else connects directly.
+     */
+    public String clientAddress(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null && !forwardedFor.isBlank() && isTrustedProxy(remoteAddress)) {
+            return forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+        }
+        return remoteAddress;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        return address != null && trustedProxies.stream().anyMatch(proxy -> proxy.matches(address));
+    }
+
+    private static String failureKey(String username, String clientAddress) {
+        return normalize(username) + "|" + clientAddress;
+    }
+
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+}
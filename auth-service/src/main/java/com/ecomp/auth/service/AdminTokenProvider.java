@@ -0,0 +1,111 @@
+package com.ecomp.auth.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Access token for the Keycloak admin API, obtained with the backend client's service account
+ * (client_credentials) and shared by every registration. Once three quarters of its lifetime
+ * have passed a replacement is fetched in the background while the current one keeps being
+ * served; concurrent callers that need a new token wait on the same request.
+ */
+@Component
+@Slf4j
+public class AdminTokenProvider {
+
+    private static final double REFRESH_AT_LIFETIME_FRACTION = 0.75;
+
+    private final WebClient webClient;
+    private final AtomicReference<CachedToken> current = new AtomicReference<>();
+    private final AtomicReference<Mono<CachedToken>> inFlight = new AtomicReference<>();
+
+    @Value("${keycloak.auth-server-url}")
+    private String keycloakUrl;
+
+    @Value("${keycloak.realm}")
+    private String realm;
+
+    @Value("${keycloak.client-id}")
+    private String clientId;
+
+    @Value("${keycloak.client-secret}")
+    private String clientSecret;
+
+    @Value("${keycloak.admin-token.min-validity-seconds:30}")
+    private long minValiditySeconds;
+
+    public AdminTokenProvider(WebClient keycloakWebClient) {
+        this.webClient = keycloakWebClient;
+    }
+
+    public Mono<String> getToken() {
+        CachedToken token = current.get();
+        Instant now = Instant.now();
+        if (token != null && now.isBefore(token.getUsableUntil())) {
+            if (!now.isBefore(token.getRefreshAt())) {
+                // Failures are logged by fetch(); the current token stays usable until it expires
+                fetch().subscribe(fresh -> { }, e -> { });
+            }
+            return Mono.just(token.getValue());
+        }
+        return fetch().map(CachedToken::getValue);
+    }
+
+    /**
+     * Drops the token after Keycloak rejected it, unless it has already been replaced.
+     */
+    public void invalidate(String token) {
+        current.updateAndGet(cached -> cached != null && cached.getValue().equals(token) ? null : cached);
+    }
+
+    private Mono<CachedToken> fetch() {
+        Mono<CachedToken> pending = inFlight.get();
+        if (pending != null) {
+            return pending;
+        }
+        String tokenUrl = keycloakUrl + "/realms/" + realm + "/protocol/openid-connect/token";
+        Mono<CachedToken> request = webClient.post()
+                .uri(tokenUrl)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData("grant_type", "client_credentials")
+                        .with("client_id", clientId)
+                        .with("client_secret", clientSecret))
+                .retrieve()
+                .bodyToMono(Map.class)
+                .map(this::toCachedToken)
+                .doOnNext(current::set)
+                .doOnSuccess(token -> log.debug("Admin token obtained, valid until {}", token.getUsableUntil()))
+                .doOnError(e -> log.error("Failed to get admin token: {}", e.getMessage()))
+                .doFinally(signal -> inFlight.set(null))
+                .cache();
+        return inFlight.compareAndSet(null, request) ? request : fetch();
+    }
+
+    private CachedToken toCachedToken(Map<?, ?> map) {
+        Instant now = Instant.now();
+        long expiresIn = ((Number) map.get("expires_in")).longValue();
+        Instant usableUntil = now.plusSeconds(Math.max(0, expiresIn - minValiditySeconds));
+        Instant refreshAt = now.plusMillis((long) (expiresIn * 1000 * REFRESH_AT_LIFETIME_FRACTION));
+        return new CachedToken((String) map.get("access_token"),
+                refreshAt.isBefore(usableUntil) ? refreshAt : usableUntil, usableUntil);
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CachedToken {
+        private final String value;
+        private final Instant refreshAt;
+        private final Instant usableUntil;
+    }
+}
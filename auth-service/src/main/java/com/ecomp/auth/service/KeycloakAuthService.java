@@ -1,14 +1,20 @@
 package com.ecomp.auth.service;
 
 import com.ecomp.auth.dto.AuthDtos.*;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +23,9 @@ import java.util.Map;
 public class KeycloakAuthService {
 
     private final WebClient webClient;
+    private final AdminTokenProvider adminTokens;
+    private final JwtDecoder jwtDecoder;
+    private final Cache<String, UserInfo> userInfoCache;
 
     @Value("${keycloak.auth-server-url}")
     private String keycloakUrl;
@@ -30,14 +39,19 @@ public class KeycloakAuthService {
     @Value("${keycloak.client-secret}")
     private String clientSecret;
 
-    @Value("${keycloak.admin-username}")
-    private String adminUsername;
-
-    @Value("${keycloak.admin-password}")
-    private String adminPassword;
-
-    public KeycloakAuthService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
+    @Value("${keycloak.userinfo.remote:false}")
+    private boolean remoteUserInfo;
+
+    public KeycloakAuthService(WebClient keycloakWebClient, AdminTokenProvider adminTokens, JwtDecoder jwtDecoder,
+                               @Value("${keycloak.userinfo.cache-ttl-seconds:60}") long userInfoTtlSeconds,
+                               @Value("${keycloak.userinfo.cache-size:10000}") long userInfoCacheSize) {
+        this.webClient = keycloakWebClient;
+        this.adminTokens = adminTokens;
+        this.jwtDecoder = jwtDecoder;
+        this.userInfoCache = Caffeine.newBuilder()
+                .maximumSize(userInfoCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(userInfoTtlSeconds))
+                .build();
     }
 
     public Mono<TokenResponse> login(LoginRequest request) {
@@ -87,55 +101,51 @@ public class KeycloakAuthService {
                 .doOnError(e -> log.error("Logout failed: {}", e.getMessage()));
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Answers from the claims of the verified access token. With keycloak.userinfo.remote the
+     * userinfo endpoint is asked instead, and its answer is reused per subject for a short TTL.
+     */
     public Mono<UserInfo> getUserInfo(String accessToken) {
+        return Mono.fromCallable(() -> jwtDecoder.decode(accessToken))
+                .flatMap(jwt -> {
+                    if (!remoteUserInfo) {
+                        return Mono.just(toUserInfo(jwt.getClaims()));
+                    }
+                    UserInfo cached = userInfoCache.getIfPresent(jwt.getSubject());
+                    if (cached != null) {
+                        return Mono.just(cached);
+                    }
+                    return fetchUserInfo(accessToken)
+                            .doOnNext(userInfo -> userInfoCache.put(jwt.getSubject(), userInfo));
+                })
+                .doOnError(e -> log.error("Get user info failed: {}", e.getMessage()));
+    }
+
+    private Mono<UserInfo> fetchUserInfo(String accessToken) {
         String userInfoUrl = keycloakUrl + "/realms/" + realm + "/protocol/openid-connect/userinfo";
 
         return webClient.get()
                 .uri(userInfoUrl)
                 .header("Authorization", "Bearer " + accessToken)
                 .retrieve()
-                .bodyToMono(Map.class)
-                .map(map -> UserInfo.builder()
-                        .id((String) map.get("sub"))
-                        .username((String) map.get("preferred_username"))
-                        .email((String) map.get("email"))
-                        .firstName((String) map.get("given_name"))
-                        .lastName((String) map.get("family_name"))
-                        .roles((List<String>) ((Map<String, Object>) map.getOrDefault("realm_access", Map.of())).getOrDefault("roles", List.of()))
-                        .build())
-                .doOnError(e -> log.error("Get user info failed: {}", e.getMessage()));
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .map(this::toUserInfo);
     }
 
     public Mono<Boolean> register(RegisterRequest request) {
         log.info("Starting registration for user: {}", request.getUsername());
-        return getAdminToken()
-                .flatMap(adminToken -> {
-                    log.info("Got admin token, creating user...");
-                    return createUser(adminToken, request);
-                })
+        return adminTokens.getToken()
+                .flatMap(adminToken -> createUser(adminToken, request)
+                        // Revoked or rotated token: drop it and retry once with a fresh one
+                        .onErrorResume(WebClientResponseException.Unauthorized.class, e -> {
+                            adminTokens.invalidate(adminToken);
+                            return adminTokens.getToken().flatMap(freshToken -> createUser(freshToken, request));
+                        })
+                        .onErrorReturn(false))
                 .doOnSuccess(result -> log.info("Registration result for {}: {}", request.getUsername(), result))
                 .doOnError(e -> log.error("Registration failed for {}: {}", request.getUsername(), e.getMessage()));
     }
 
-    private Mono<String> getAdminToken() {
-        String tokenUrl = keycloakUrl + "/realms/master/protocol/openid-connect/token";
-        log.debug("Getting admin token from: {}", tokenUrl);
-
-        return webClient.post()
-                .uri(tokenUrl)
-                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                .body(BodyInserters.fromFormData("grant_type", "password")
-                        .with("client_id", "admin-cli")
-                        .with("username", adminUsername)
-                        .with("password", adminPassword))
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(map -> (String) map.get("access_token"))
-                .doOnSuccess(token -> log.debug("Admin token obtained successfully"))
-                .doOnError(e -> log.error("Failed to get admin token: {}", e.getMessage()));
-    }
-
     private Mono<Boolean> createUser(String adminToken, RegisterRequest request) {
         String usersUrl = keycloakUrl + "/admin/realms/" + realm + "/users";
         log.debug("Creating user at: {}", usersUrl);
@@ -165,8 +175,19 @@ public class KeycloakAuthService {
                     log.info("User creation response status: {}", response.getStatusCode());
                     return response.getStatusCode().is2xxSuccessful();
                 })
-                .doOnError(e -> log.error("Failed to create user: {}", e.getMessage()))
-                .onErrorReturn(false);
+                .doOnError(e -> log.error("Failed to create user: {}", e.getMessage()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private UserInfo toUserInfo(Map<String, Object> claims) {
+        return UserInfo.builder()
+                .id((String) claims.get("sub"))
+                .username((String) claims.get("preferred_username"))
+                .email((String) claims.get("email"))
+                .firstName((String) claims.get("given_name"))
+                .lastName((String) claims.get("family_name"))
+                .roles((List<String>) ((Map<String, Object>) claims.getOrDefault("realm_access", Map.of())).getOrDefault("roles", List.of()))
+                .build();
     }
 
     @SuppressWarnings("unchecked")
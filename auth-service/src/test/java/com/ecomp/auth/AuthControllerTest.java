@@ -2,7 +2,9 @@ package com.ecomp.auth;
 
 import com.ecomp.auth.controller.AuthController;
 import com.ecomp.auth.dto.AuthDtos.*;
+import com.ecomp.auth.ratelimit.LoginRateLimiter;
 import com.ecomp.auth.service.KeycloakAuthService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,13 +13,20 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +35,9 @@ class AuthControllerTest {
     @Mock
     private KeycloakAuthService authService;
 
+    @Mock
+    private LoginRateLimiter rateLimiter;
+
     @InjectMocks
     private AuthController authController;
 
@@ -55,9 +67,11 @@ class AuthControllerTest {
     @Test
     void login_Success() {
         LoginRequest request = new LoginRequest("testuser", "password");
+        when(rateLimiter.clientAddress(any())).thenReturn("203.0.113.7");
+        when(rateLimiter.allowUsername("testuser", "203.0.113.7")).thenReturn(true);
         when(authService.login(any(LoginRequest.class))).thenReturn(Mono.just(mockTokenResponse));
 
-        Mono<ResponseEntity<TokenResponse>> result = authController.login(request);
+        Mono<ResponseEntity<TokenResponse>> result = authController.login(request, new MockHttpServletRequest());
 
         StepVerifier.create(result)
                 .expectNextMatches(response -> 
@@ -70,15 +84,60 @@ class AuthControllerTest {
     @Test
     void login_Failure() {
         LoginRequest request = new LoginRequest("testuser", "wrong-password");
+        when(rateLimiter.clientAddress(any())).thenReturn("203.0.113.7");
+        when(rateLimiter.allowUsername("testuser", "203.0.113.7")).thenReturn(true);
         when(authService.login(any(LoginRequest.class))).thenReturn(Mono.error(new RuntimeException("Invalid credentials")));
 
-        Mono<ResponseEntity<TokenResponse>> result = authController.login(request);
+        Mono<ResponseEntity<TokenResponse>> result = authController.login(request, new MockHttpServletRequest());
 
         StepVerifier.create(result)
                 .expectNextMatches(response -> response.getStatusCode() == HttpStatus.UNAUTHORIZED)
                 .verifyComplete();
     }
 
+    @Test
+    void login_ThrottledUsername_ReturnsTooManyRequests() {
+        LoginRequest request = new LoginRequest("testuser", "guess");
+        when(rateLimiter.clientAddress(any())).thenReturn("203.0.113.7");
+        when(rateLimiter.allowUsername("testuser", "203.0.113.7")).thenReturn(false);
+        when(rateLimiter.usernameRetryAfterSeconds()).thenReturn(120L);
+
+        Mono<ResponseEntity<TokenResponse>> result = authController.login(request, new MockHttpServletRequest());
+
+        StepVerifier.create(result)
+                .expectNextMatches(response ->
+                        response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS &&
+                        "120".equals(response.getHeaders().getFirst("Retry-After")))
+                .verifyComplete();
+        verify(authService, never()).login(any(LoginRequest.class));
+    }
+
+    @Test
+    void loginRateLimiter_FailuresFromOneAddress_DoNotLockOutOthers() {
+        LoginRateLimiter limiter = newLimiter();
+
+        for (int i = 0; i < 5; i++) {
+            limiter.recordFailure("TestUser", "198.51.100.9");
+        }
+
+        assertFalse(limiter.allowUsername("testuser", "198.51.100.9"));
+        assertTrue(limiter.allowUsername("testuser", "203.0.113.7"));
+    }
+
+    @Test
+    void loginRateLimiter_ForwardedFor_OnlyTrustedFromProxy() {
+        LoginRateLimiter limiter = newLimiter();
+        MockHttpServletRequest direct = new MockHttpServletRequest();
+        direct.setRemoteAddr("198.51.100.9");
+        direct.addHeader("X-Forwarded-For", "203.0.113.7");
+        MockHttpServletRequest viaGateway = new MockHttpServletRequest();
+        viaGateway.setRemoteAddr("172.28.0.10");
+        viaGateway.addHeader("X-Forwarded-For", "10.9.9.9, 203.0.113.7");
+
+        assertEquals("198.51.100.9", limiter.clientAddress(direct));
+        assertEquals("203.0.113.7", limiter.clientAddress(viaGateway));
+    }
+
     @Test
     void register_Success() {
         RegisterRequest request = RegisterRequest.builder()
@@ -160,4 +219,12 @@ class AuthControllerTest {
         assert result.getStatusCode() == HttpStatus.OK;
         assert result.getBody() != null && result.getBody().contains("healthy");
     }
+
+    private static LoginRateLimiter newLimiter() {
+        LoginRateLimiter limiter = new LoginRateLimiter(new SimpleMeterRegistry(), 60, 900, 1024, List.of("172.28.0.0/16"));
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "maxRequestsPerAddress", 30L);
+        ReflectionTestUtils.setField(limiter, "maxFailuresPerUsername", 5L);
+        return limiter;
+    }
 }
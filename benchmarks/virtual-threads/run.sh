@@ -0,0 +1,77 @@
+#!/usr/bin/env bash
+# Compara service-catalog con el pool de hilos de Tomcat y con hilos virtuales bajo 10k
+# conexiones concurrentes. Uso: ./run.sh [platform|virtual ...]
+# Variables: CONNECTIONS (10000), THREADS (8), DURATION (60s), WARMUP (30s), BENCH_CPUS (2)
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+CONNECTIONS=${CONNECTIONS:-10000}
+THREADS=${THREADS:-8}
+DURATION=${DURATION:-60s}
+WARMUP=${WARMUP:-30s}
+ENDPOINT=/services/provider/bench-provider
+# El catálogo no arranca sin él; el banco de pruebas no llama a /reservations
+export CATALOG_SERVICE_TOKEN=${CATALOG_SERVICE_TOKEN:-$(openssl rand -hex 32)}
+MODES=("$@")
+[ ${#MODES[@]} -eq 0 ] && MODES=(platform virtual)
+
+declare -A HOST_PORT=([platform]=18085 [virtual]=18086)
+# Parte del nombre del hilo de Tomcat que sobrevive al recorte a 15 caracteres del log
+# (http-nio-8085-exec-N con el pool, tomcat-handler-N con hilos virtuales)
+declare -A THREAD_NAME=([platform]=8085-exec- [virtual]=handler-)
+
+RESULTS=results/$(date +%Y%m%d-%H%M%S)
+mkdir -p "$RESULTS"
+
+compose() {
+    docker compose "$@"
+}
+
+wait_healthy() {
+    local port=$1
+    for _ in $(seq 1 60); do
+        if curl -fs "http://localhost:$port/actuator/health" > /dev/null; then
+            return 0
+        fi
+        sleep 2
+    done
+    echo "el servicio del puerto $port no arrancó" >&2
+    return 1
+}
+
+compose build catalog-platform
+compose up -d postgres
+
+for mode in "${MODES[@]}"; do
+    service=catalog-$mode
+    port=${HOST_PORT[$mode]}
+    echo "== $mode"
+    compose up -d "$service"
+    wait_healthy "$port"
+
+    # Comprueba el runtime y el tipo de hilo que atiende las peticiones antes de medir
+    compose exec -T "$service" java -version 2>&1 | head -1 | tee "$RESULTS/$mode-runtime.txt"
+    curl -fs "http://localhost:$port$ENDPOINT" > /dev/null
+    if ! compose logs "$service" | grep "Getting services by provider" | tail -1 | tee -a "$RESULTS/$mode-runtime.txt" \
+            | grep -q "${THREAD_NAME[$mode]}"; then
+        echo "$mode: la petición no se atendió en un hilo ${THREAD_NAME[$mode]}" >&2
+        exit 1
+    fi
+    curl -fs -X POST -H 'Content-Type: application/json' -d '{"configuredLevel":"WARN"}' \
+        "http://localhost:$port/actuator/loggers/com.ecomp.catalog"
+
+    compose run --rm wrk -t"$THREADS" -c1000 -d"$WARMUP" "http://$service:8085$ENDPOINT" > /dev/null
+    compose run --rm wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --timeout 10s --latency \
+        "http://$service:8085$ENDPOINT" | tee "$RESULTS/$mode-wrk.txt"
+
+    compose stop "$service"
+done
+
+echo "== Resumen ($RESULTS)"
+for mode in "${MODES[@]}"; do
+    printf '%-9s %s | %s | %s\n' "$mode" \
+        "$(grep 'Requests/sec' "$RESULTS/$mode-wrk.txt")" \
+        "$(grep -E '^ +99%' "$RESULTS/$mode-wrk.txt" | xargs)" \
+        "$({ grep -E 'Socket errors|Non-2xx' "$RESULTS/$mode-wrk.txt" || echo 'sin errores'; } | xargs)"
+done
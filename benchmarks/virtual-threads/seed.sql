@@ -0,0 +1,5 @@
+-- Datos del banco de pruebas: el endpoint medido lista los servicios de este proveedor con JPA
+INSERT INTO catalog.services (provider_id, name, description, price, category, city, country_code)
+SELECT 'bench-provider', 'Servicio ' || n, 'Servicio generado para el banco de pruebas', 50 + n,
+       'Alojamiento', 'Quito', 'EC'
+FROM generate_series(1, 20) AS n;
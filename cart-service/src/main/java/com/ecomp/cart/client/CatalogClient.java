@@ -1,26 +1,43 @@
 package com.ecomp.cart.client;
 
+import com.ecomp.cart.dto.CartDtos.BatchGetRequest;
+import com.ecomp.cart.dto.CartDtos.ReservationRequest;
 import com.ecomp.cart.dto.CartDtos.ServiceInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class CatalogClient {
 
+    private static final String SERVICE_TOKEN_HEADER = "X-Service-Token";
+
     private final WebClient webClient;
 
     @Value("${services.catalog.url:http://service-catalog:8085}")
     private String catalogServiceUrl;
 
-    public CatalogClient(WebClient.Builder webClientBuilder) {
+    private final String serviceToken;
+
+    public CatalogClient(WebClient.Builder webClientBuilder,
+                         @Value("${services.catalog.service-token}") String serviceToken) {
+        if (serviceToken.isBlank()) {
+            throw new IllegalStateException("services.catalog.service-token is blank; set CATALOG_SERVICE_TOKEN");
+        }
         this.webClient = webClientBuilder.build();
+        this.serviceToken = serviceToken;
     }
 
     @SuppressWarnings("unchecked")
@@ -41,4 +58,53 @@ public class CatalogClient {
                     return Mono.empty();
                 });
     }
+
+    public Mono<List<ServiceInfo>> getPrices(Collection<String> serviceIds) {
+        return webClient.post()
+                .uri(catalogServiceUrl + "/services:batchGet")
+                .bodyValue(BatchGetRequest.builder()
+                        .ids(List.copyOf(serviceIds))
+                        .fields(List.of("id", "name", "price"))
+                        .build())
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<ServiceInfo>>() {})
+                // Unknown ids come back as null entries
+                .map(infos -> infos.stream().filter(Objects::nonNull).collect(Collectors.toList()))
+                .onErrorResume(e -> {
+                    log.error("Error fetching prices for {} service(s): {}", serviceIds.size(), e.getMessage());
+                    return Mono.error(new IllegalStateException("Catalog unavailable, cannot validate prices"));
+                });
+    }
+
+    public Mono<Boolean> reserve(ReservationRequest request) {
+        return webClient.post()
+                .uri(catalogServiceUrl + "/reservations")
+                .header(SERVICE_TOKEN_HEADER, serviceToken)
+                .bodyValue(request)
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> true)
+                .onErrorResume(WebClientResponseException.Conflict.class, e -> Mono.just(false))
+                .onErrorResume(e -> {
+                    log.error("Error reserving capacity for {}: {}", request.getReference(), e.getMessage());
+                    return Mono.error(new IllegalStateException("Catalog unavailable, cannot reserve capacity"));
+                });
+    }
+
+    public Mono<Void> confirmReservation(String reference) {
+        return webClient.post()
+                .uri(catalogServiceUrl + "/reservations/" + reference + "/confirm")
+                .header(SERVICE_TOKEN_HEADER, serviceToken)
+                .retrieve()
+                .bodyToMono(Void.class);
+    }
+
+    public Mono<Void> releaseReservation(String reference) {
+        return webClient.delete()
+                .uri(catalogServiceUrl + "/reservations/" + reference)
+                .header(SERVICE_TOKEN_HEADER, serviceToken)
+                .retrieve()
+                .bodyToMono(Void.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty());
+    }
 }
@@ -3,14 +3,18 @@ package com.ecomp.cart.controller;
 import com.ecomp.cart.dto.CartDtos.*;
 import com.ecomp.cart.entity.Order;
 import com.ecomp.cart.service.CartService;
+import com.ecomp.cart.service.PriceChangedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -40,11 +44,12 @@ public class CartController {
     public ResponseEntity<CartItemDto> addToCart(
             @AuthenticationPrincipal Jwt jwt,
             @RequestParam String serviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
             @RequestParam(defaultValue = "1") Integer quantity) {
         String userId = jwt.getSubject();
-        log.info("Adding to cart: serviceId={}, quantity={}", serviceId, quantity);
+        log.info("Adding to cart: serviceId={}, date={}, quantity={}", serviceId, date, quantity);
         
-        CartItemDto item = cartService.addToCart(userId, UUID.fromString(serviceId), quantity);
+        CartItemDto item = cartService.addToCart(userId, UUID.fromString(serviceId), date, quantity);
         return ResponseEntity.ok(item);
     }
 
@@ -84,13 +89,18 @@ public class CartController {
     }
 
     @PostMapping("/checkout")
-    public ResponseEntity<Order> checkout(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<?> checkout(@AuthenticationPrincipal Jwt jwt) {
         String userId = jwt.getSubject();
         log.info("Checkout for user: {}", userId);
         
         try {
             Order order = cartService.checkout(userId);
             return ResponseEntity.ok(order);
+        } catch (PriceChangedException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(CheckoutConflictDto.builder()
+                    .message(e.getMessage())
+                    .changes(e.getChanges())
+                    .build());
         } catch (IllegalStateException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -102,6 +112,16 @@ public class CartController {
         return ResponseEntity.ok(cartService.getOrderHistory(userId));
     }
 
+    @GetMapping("/orders/{orderId}")
+    public ResponseEntity<Order> getOrder(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String orderId) {
+        String userId = jwt.getSubject();
+        return cartService.getOrder(userId, UUID.fromString(orderId))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Cart service is healthy");
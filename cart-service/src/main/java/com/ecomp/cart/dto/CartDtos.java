@@ -7,6 +7,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 
 public class CartDtos {
 
@@ -19,6 +21,7 @@ public class CartDtos {
         private String serviceId;
         private String serviceName;
         private String serviceCategory;
+        private LocalDate serviceDate;
         private Integer quantity;
         private BigDecimal unitPrice;
 
@@ -29,6 +32,7 @@ public class CartDtos {
                     .serviceId(entity.getServiceId().toString())
                     .serviceName(entity.getServiceName())
                     .serviceCategory(entity.getServiceCategory())
+                    .serviceDate(entity.getServiceDate())
                     .quantity(entity.getQuantity())
                     .unitPrice(entity.getUnitPrice())
                     .build();
@@ -45,4 +49,53 @@ public class CartDtos {
         private String category;
         private BigDecimal price;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchGetRequest {
+        private List<String> ids;
+        private List<String> fields;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceChangeDto {
+        private String serviceId;
+        private String serviceName;
+        private BigDecimal oldPrice;
+        private BigDecimal newPrice;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CheckoutConflictDto {
+        private String message;
+        private List<PriceChangeDto> changes;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReservationRequest {
+        private String reference;
+        private String userId;
+        private List<ReservationItem> items;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReservationItem {
+        private String serviceId;
+        private LocalDate date;
+        private Integer quantity;
+    }
 }
@@ -6,12 +6,13 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
 @Table(name = "cart_items", schema = "cart", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "service_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "service_id", "service_date"}))
 @Data
 @Builder
 @NoArgsConstructor
@@ -34,6 +35,9 @@ public class CartItem {
     @Column(name = "service_category")
     private String serviceCategory;
 
+    @Column(name = "service_date")
+    private LocalDate serviceDate;
+
     @Column(nullable = false)
     @Builder.Default
     private Integer quantity = 1;
@@ -18,9 +18,10 @@ import java.util.UUID;
 @AllArgsConstructor
 public class Order {
 
+    // Assigned up front: checkout reserves catalog places under the order id before saving it
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private UUID id;
+    @Builder.Default
+    private UUID id = UUID.randomUUID();
 
     @Column(name = "user_id", nullable = false)
     private String userId;
@@ -30,7 +31,7 @@ public class Order {
 
     @Enumerated(EnumType.STRING)
     @Builder.Default
-    private OrderStatus status = OrderStatus.COMPLETED;
+    private OrderStatus status = OrderStatus.PENDING;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
@@ -5,6 +5,7 @@ import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -31,6 +32,9 @@ public class OrderItem {
     @Column(name = "service_name")
     private String serviceName;
 
+    @Column(name = "service_date")
+    private LocalDate serviceDate;
+
     private Integer quantity;
 
     @Column(name = "unit_price", precision = 10, scale = 2)
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,7 +16,7 @@ public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
     
     List<CartItem> findByUserId(String userId);
     
-    Optional<CartItem> findByUserIdAndServiceId(String userId, UUID serviceId);
+    Optional<CartItem> findByUserIdAndServiceIdAndServiceDate(String userId, UUID serviceId, LocalDate serviceDate);
     
     void deleteByUserId(String userId);
     
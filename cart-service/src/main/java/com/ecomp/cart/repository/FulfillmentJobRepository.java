@@ -0,0 +1,28 @@
+package com.ecomp.cart.repository;
+
+import com.ecomp.cart.entity.FulfillmentJob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface FulfillmentJobRepository extends JpaRepository<FulfillmentJob, UUID> {
+
+    // lock.timeout = -2 is Hibernate's SKIP_LOCKED: rows claimed by another worker are skipped, not waited on
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT j FROM FulfillmentJob j WHERE j.status IN :statuses AND j.availableAt <= :now ORDER BY j.availableAt")
+    List<FulfillmentJob> claimNext(Collection<FulfillmentJob.JobStatus> statuses, LocalDateTime now, Pageable pageable);
+
+    List<FulfillmentJob> findByOrderId(UUID orderId);
+}
@@ -11,11 +11,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +32,8 @@ public class CartService {
     private final CartItemRepository cartRepository;
     private final OrderRepository orderRepository;
     private final CatalogClient catalogClient;
+    private final FulfillmentWorker fulfillmentWorker;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional(readOnly = true)
     public List<CartItemDto> getCart(String userId) {
@@ -42,10 +50,15 @@ public class CartService {
 
     @Transactional
     public CartItemDto addToCart(String userId, UUID serviceId, int quantity) {
-        log.info("Adding service {} to cart for user {}, quantity: {}", serviceId, userId, quantity);
+        return addToCart(userId, serviceId, null, quantity);
+    }
+
+    @Transactional
+    public CartItemDto addToCart(String userId, UUID serviceId, LocalDate serviceDate, int quantity) {
+        log.info("Adding service {} to cart for user {}, date: {}, quantity: {}", serviceId, userId, serviceDate, quantity);
         
-        // Check if item already exists
-        Optional<CartItem> existing = cartRepository.findByUserIdAndServiceId(userId, serviceId);
+        // Check if item already exists for the same date
+        Optional<CartItem> existing = cartRepository.findByUserIdAndServiceIdAndServiceDate(userId, serviceId, serviceDate);
         
         if (existing.isPresent()) {
             CartItem item = existing.get();
@@ -62,6 +75,7 @@ public class CartService {
                 .serviceId(serviceId)
                 .serviceName(serviceInfo != null ? serviceInfo.getName() : "Service")
                 .serviceCategory(serviceInfo != null ? serviceInfo.getCategory() : null)
+                .serviceDate(serviceDate)
                 .quantity(quantity)
                 .unitPrice(serviceInfo != null ? serviceInfo.getPrice() : BigDecimal.ZERO)
                 .build();
@@ -104,7 +118,8 @@ public class CartService {
         cartRepository.deleteByUserId(userId);
     }
 
-    @Transactional
+    // Not transactional: no connection or lock is held while the catalog is called. Places are
+    // held first under the order id, and released again if the local write does not commit.
     public Order checkout(String userId) {
         log.info("Checkout for user: {}", userId);
         
@@ -113,35 +128,130 @@ public class CartService {
             throw new IllegalStateException("Cart is empty");
         }
         
+        revalidatePrices(cartItems);
+        
         BigDecimal total = cartItems.stream()
                 .map(CartItem::getSubtotal)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
         
-        Order order = Order.builder()
-                .userId(userId)
-                .totalAmount(total)
-                .status(Order.OrderStatus.COMPLETED)
-                .build();
-        
-        for (CartItem cartItem : cartItems) {
-            OrderItem orderItem = OrderItem.builder()
-                    .serviceId(cartItem.getServiceId())
-                    .serviceName(cartItem.getServiceName())
-                    .quantity(cartItem.getQuantity())
-                    .unitPrice(cartItem.getUnitPrice())
-                    .build();
-            order.addItem(orderItem);
+        UUID orderId = UUID.randomUUID();
+        Boolean reserved;
+        try {
+            reserved = catalogClient.reserve(ReservationRequest.builder()
+                    .reference(orderId.toString())
+                    .userId(userId)
+                    .items(cartItems.stream()
+                            .map(item -> ReservationItem.builder()
+                                    .serviceId(item.getServiceId().toString())
+                                    .date(item.getServiceDate())
+                                    .quantity(item.getQuantity())
+                                    .build())
+                            .collect(Collectors.toList()))
+                    .build())
+                    .block();
+        } catch (RuntimeException e) {
+            // The catalog may have held the places before the call failed
+            releaseHold(orderId);
+            throw e;
+        }
+        if (!Boolean.TRUE.equals(reserved)) {
+            throw new IllegalStateException("Not enough availability for the selected services");
         }
         
-        Order savedOrder = orderRepository.save(order);
-        
-        // Clear cart after checkout
-        cartRepository.deleteByUserId(userId);
+        Order savedOrder;
+        try {
+            savedOrder = transactionTemplate.execute(status -> {
+                Order order = Order.builder()
+                        .id(orderId)
+                        .userId(userId)
+                        .totalAmount(total)
+                        .status(Order.OrderStatus.PENDING)
+                        .build();
+                
+                for (CartItem cartItem : cartItems) {
+                    OrderItem orderItem = OrderItem.builder()
+                            .serviceId(cartItem.getServiceId())
+                            .serviceName(cartItem.getServiceName())
+                            .serviceDate(cartItem.getServiceDate())
+                            .quantity(cartItem.getQuantity())
+                            .unitPrice(cartItem.getUnitPrice())
+                            .build();
+                    order.addItem(orderItem);
+                }
+                
+                Order saved = orderRepository.save(order);
+                // Fulfilment runs on the workers; the job commits atomically with the order
+                fulfillmentWorker.enqueue(saved);
+                // Only the lines that were ordered; anything added meanwhile stays in the cart
+                cartRepository.deleteAll(cartItems);
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            releaseHold(orderId);
+            throw e;
+        }
         
         log.info("Order created: {} with total: {}", savedOrder.getId(), total);
         return savedOrder;
     }
 
+    private void releaseHold(UUID orderId) {
+        try {
+            catalogClient.releaseReservation(orderId.toString()).block();
+        } catch (RuntimeException e) {
+            // Left alone, the hold still expires after the catalog's hold TTL
+            log.error("Could not release reservation {}: {}", orderId, e.getMessage());
+        }
+    }
+
+    // Repriced lines are saved before the rejection so the user sees the new totals
+    private void revalidatePrices(List<CartItem> cartItems) {
+        Set<String> serviceIds = cartItems.stream()
+                .map(item -> item.getServiceId().toString())
+                .collect(Collectors.toSet());
+        Map<String, ServiceInfo> current = catalogClient.getPrices(serviceIds).block().stream()
+                .collect(Collectors.toMap(ServiceInfo::getId, Function.identity()));
+        
+        List<PriceChangeDto> changes = new ArrayList<>();
+        List<CartItem> repriced = new ArrayList<>();
+        List<CartItem> discontinued = new ArrayList<>();
+        for (CartItem item : cartItems) {
+            ServiceInfo info = current.get(item.getServiceId().toString());
+            BigDecimal newPrice = info != null ? info.getPrice() : null;
+            if (newPrice != null && item.getUnitPrice() != null && newPrice.compareTo(item.getUnitPrice()) == 0) {
+                continue;
+            }
+            changes.add(PriceChangeDto.builder()
+                    .serviceId(item.getServiceId().toString())
+                    .serviceName(item.getServiceName())
+                    .oldPrice(item.getUnitPrice())
+                    .newPrice(newPrice)
+                    .build());
+            if (info == null) {
+                // Service no longer offered
+                discontinued.add(item);
+            } else {
+                item.setUnitPrice(newPrice);
+                repriced.add(item);
+            }
+        }
+        
+        if (!changes.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                cartRepository.deleteAll(discontinued);
+                cartRepository.saveAll(repriced);
+            });
+            log.info("Checkout rejected, {} price change(s)", changes.size());
+            throw new PriceChangedException(changes);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Order> getOrder(String userId, UUID orderId) {
+        return orderRepository.findById(orderId)
+                .filter(order -> order.getUserId().equals(userId));
+    }
+
     @Transactional(readOnly = true)
     public List<Order> getOrderHistory(String userId) {
         return orderRepository.findByUserIdOrderByCreatedAtDesc(userId);
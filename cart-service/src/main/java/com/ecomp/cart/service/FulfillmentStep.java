@@ -0,0 +1,16 @@
+package com.ecomp.cart.service;
+
+import com.ecomp.cart.entity.Order;
+
+/**
+ * A unit of post-checkout work (payment, provider notification, inventory...).
+ * Steps run in order on the fulfilment workers, never on the checkout request thread,
+ * and must be idempotent because a failed job is retried from the first step.
+ */
+public interface FulfillmentStep {
+
+    void execute(Order order);
+
+    default void compensate(Order order) {
+    }
+}
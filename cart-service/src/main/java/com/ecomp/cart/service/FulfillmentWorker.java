@@ -0,0 +1,249 @@
+package com.ecomp.cart.service;
+
+import com.ecomp.cart.entity.FulfillmentJob;
+import com.ecomp.cart.entity.Order;
+import com.ecomp.cart.repository.FulfillmentJobRepository;
+import com.ecomp.cart.repository.OrderRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@Slf4j
+public class FulfillmentWorker {
+
+    private final FulfillmentJobRepository jobRepository;
+    private final OrderRepository orderRepository;
+    private final ObjectProvider<FulfillmentStep> steps;
+    private final TaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    @Value("${cart.fulfillment.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cart.fulfillment.workers:4}")
+    private int workers;
+
+    @Value("${cart.fulfillment.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${cart.fulfillment.backoff-seconds:2}")
+    private long backoffSeconds;
+
+    // Must outlast the slowest run of all steps, or the job is claimed again while still running
+    @Value("${cart.fulfillment.lease-seconds:300}")
+    private long leaseSeconds;
+
+    public FulfillmentWorker(FulfillmentJobRepository jobRepository,
+                             OrderRepository orderRepository,
+                             ObjectProvider<FulfillmentStep> steps,
+                             @Qualifier("applicationTaskExecutor") TaskExecutor executor,
+                             PlatformTransactionManager transactionManager) {
+        this.jobRepository = jobRepository;
+        this.orderRepository = orderRepository;
+        this.steps = steps;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public FulfillmentJob enqueue(Order order) {
+        return jobRepository.save(FulfillmentJob.builder()
+                .orderId(order.getId())
+                .availableAt(LocalDateTime.now())
+                .build());
+    }
+
+    @Scheduled(fixedDelayString = "${cart.fulfillment.poll-interval-ms:1000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        while (activeWorkers.get() < workers) {
+            activeWorkers.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        while (processNext()) {
+                            // keep draining until the queue has nothing ready for us
+                        }
+                    } catch (Exception e) {
+                        log.error("Fulfillment worker stopped: {}", e.getMessage());
+                    } finally {
+                        activeWorkers.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                activeWorkers.decrementAndGet();
+                log.warn("Fulfillment worker not started, executor is saturated: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Claims one ready job and runs its steps. The claim and the outcome are two short
+     * transactions; the steps run between them with no row lock or connection held. While
+     * the steps run the job is RUNNING under a lease, and a job whose lease ran out (its
+     * worker died) is claimed again, until it has used up its attempts. Compensation only runs
+     * after the give-up has been committed by the worker that still owns the job.
+     *
+     * @return false when no job was ready to claim
+     */
+    public boolean processNext() {
+        Claim claim = transactionTemplate.execute(status -> claim());
+        if (claim == null) {
+            return false;
+        }
+        if (claim.isGivenUp()) {
+            compensate(claim.getOrder());
+            return true;
+        }
+        if (claim.getOrder() == null) {
+            return true;
+        }
+
+        Order order = claim.getOrder();
+        try {
+            steps.orderedStream().forEach(step -> step.execute(order));
+        } catch (Exception e) {
+            boolean giveUp = claim.getAttempts() >= maxAttempts;
+            Boolean gaveUp = transactionTemplate.execute(status -> recordFailure(claim, e, giveUp));
+            if (Boolean.TRUE.equals(gaveUp)) {
+                compensate(order);
+            }
+            return true;
+        }
+        transactionTemplate.executeWithoutResult(status -> recordSuccess(claim));
+        return true;
+    }
+
+    private Claim claim() {
+        LocalDateTime now = LocalDateTime.now();
+        // RUNNING jobs are only due again once their lease has run out
+        List<FulfillmentJob> claimed = jobRepository.claimNext(
+                List.of(FulfillmentJob.JobStatus.QUEUED, FulfillmentJob.JobStatus.RUNNING), now, PageRequest.of(0, 1));
+        if (claimed.isEmpty()) {
+            return null;
+        }
+        FulfillmentJob job = claimed.get(0);
+        Order order = orderRepository.findById(job.getOrderId()).orElse(null);
+        if (order == null || order.getStatus() != Order.OrderStatus.PENDING) {
+            job.setStatus(FulfillmentJob.JobStatus.DONE);
+            jobRepository.save(job);
+            return new Claim(job.getId(), job.getAttempts(), null, false);
+        }
+        // Steps get the order detached, so its items are loaded while the session is open
+        Hibernate.initialize(order.getItems());
+        if (job.getAttempts() >= maxAttempts) {
+            // The last attempt never reported back: its worker hung or died past the lease
+            giveUp(job, "Lease ran out on attempt " + job.getAttempts());
+            jobRepository.save(job);
+            return new Claim(job.getId(), job.getAttempts(), order, true);
+        }
+        job.setStatus(FulfillmentJob.JobStatus.RUNNING);
+        job.setAttempts(job.getAttempts() + 1);
+        job.setAvailableAt(now.plusSeconds(leaseSeconds));
+        jobRepository.save(job);
+        return new Claim(job.getId(), job.getAttempts(), order, false);
+    }
+
+    private void recordSuccess(Claim claim) {
+        FulfillmentJob job = ownedJob(claim);
+        if (job == null) {
+            return;
+        }
+        orderRepository.findById(job.getOrderId()).ifPresent(order -> {
+            order.setStatus(Order.OrderStatus.COMPLETED);
+            orderRepository.save(order);
+        });
+        job.setStatus(FulfillmentJob.JobStatus.DONE);
+        job.setLastError(null);
+        jobRepository.save(job);
+        log.info("Order {} fulfilled after {} attempt(s)", job.getOrderId(), job.getAttempts());
+    }
+
+    /**
+     * @return true when this worker still owned the job and gave it up, so it must compensate
+     */
+    private boolean recordFailure(Claim claim, Exception e, boolean giveUp) {
+        FulfillmentJob job = ownedJob(claim);
+        if (job == null) {
+            return false;
+        }
+        if (giveUp) {
+            giveUp(job, e.getMessage());
+        } else {
+            job.setLastError(e.getMessage());
+            long delay = backoffSeconds << (job.getAttempts() - 1);
+            job.setStatus(FulfillmentJob.JobStatus.QUEUED);
+            job.setAvailableAt(LocalDateTime.now().plusSeconds(delay));
+            log.warn("Fulfillment of order {} failed (attempt {}), retrying in {}s: {}",
+                    job.getOrderId(), job.getAttempts(), delay, e.getMessage());
+        }
+        jobRepository.save(job);
+        return giveUp;
+    }
+
+    // A FAILED job is never claimed again, so once this commits nobody else confirms the order
+    private void giveUp(FulfillmentJob job, String reason) {
+        orderRepository.findById(job.getOrderId()).ifPresent(order -> {
+            order.setStatus(Order.OrderStatus.CANCELLED);
+            orderRepository.save(order);
+        });
+        job.setStatus(FulfillmentJob.JobStatus.FAILED);
+        job.setLastError(reason);
+        log.error("Order {} cancelled, fulfillment failed {} times: {}", job.getOrderId(), job.getAttempts(), reason);
+    }
+
+    // The attempt number fences the outcome: once a lease has run out and the job was claimed
+    // again, the earlier worker's result is dropped
+    private FulfillmentJob ownedJob(Claim claim) {
+        FulfillmentJob job = jobRepository.findById(claim.getJobId()).orElse(null);
+        if (job == null || job.getStatus() != FulfillmentJob.JobStatus.RUNNING
+                || job.getAttempts() != claim.getAttempts()) {
+            log.warn("Lease on fulfillment job {} was lost, discarding the outcome of attempt {}",
+                    claim.getJobId(), claim.getAttempts());
+            return null;
+        }
+        return job;
+    }
+
+    private void compensate(Order order) {
+        steps.orderedStream().forEach(step -> {
+            try {
+                step.compensate(order);
+            } catch (Exception e) {
+                log.error("Compensation of order {} failed in {}: {}",
+                        order.getId(), step.getClass().getSimpleName(), e.getMessage());
+            }
+        });
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class Claim {
+        private final UUID jobId;
+        private final int attempts;
+        // null when the job was closed without running any step
+        private final Order order;
+        // Attempts were used up at claim time; the order only needs compensating
+        private final boolean givenUp;
+    }
+}
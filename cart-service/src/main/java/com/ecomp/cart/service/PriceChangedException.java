@@ -0,0 +1,17 @@
+package com.ecomp.cart.service;
+
+import com.ecomp.cart.dto.CartDtos.PriceChangeDto;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class PriceChangedException extends IllegalStateException {
+
+    private final List<PriceChangeDto> changes;
+
+    public PriceChangedException(List<PriceChangeDto> changes) {
+        super("Prices changed for " + changes.size() + " item(s)");
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ecomp.cart.service;
+
+import com.ecomp.cart.client.CatalogClient;
+import com.ecomp.cart.entity.Order;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationStep implements FulfillmentStep {
+
+    private final CatalogClient catalogClient;
+
+    @Override
+    public void execute(Order order) {
+        catalogClient.confirmReservation(order.getId().toString()).block();
+        log.info("Capacity confirmed for order {}", order.getId());
+    }
+
+    @Override
+    public void compensate(Order order) {
+        catalogClient.releaseReservation(order.getId().toString()).block();
+        log.info("Capacity released for order {}", order.getId());
+    }
+}
@@ -2,26 +2,38 @@ package com.ecomp.cart;
 
 import com.ecomp.cart.dto.CartDtos.*;
 import com.ecomp.cart.entity.CartItem;
+import com.ecomp.cart.entity.FulfillmentJob;
 import com.ecomp.cart.entity.Order;
 import com.ecomp.cart.repository.CartItemRepository;
+import com.ecomp.cart.repository.FulfillmentJobRepository;
 import com.ecomp.cart.repository.OrderRepository;
 import com.ecomp.cart.service.CartService;
+import com.ecomp.cart.service.FulfillmentWorker;
+import com.ecomp.cart.service.PriceChangedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import com.ecomp.cart.client.CatalogClient;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -38,6 +50,12 @@ class CartServiceTest {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private FulfillmentJobRepository jobRepository;
+
+    @SpyBean
+    private FulfillmentWorker fulfillmentWorker;
+
     @MockBean
     private CatalogClient catalogClient;
 
@@ -46,6 +64,7 @@ class CartServiceTest {
 
     @BeforeEach
     void setUp() {
+        jobRepository.deleteAll();
         cartRepository.deleteAll();
         orderRepository.deleteAll();
         
@@ -57,6 +76,17 @@ class CartServiceTest {
                         .category("Alojamiento")
                         .price(BigDecimal.valueOf(100.00))
                         .build()));
+        // Catalog agrees with the prices captured in the cart unless a test says otherwise
+        when(catalogClient.getPrices(any())).thenAnswer(invocation -> Mono.just(cartRepository.findAll().stream()
+                .map(item -> ServiceInfo.builder()
+                        .id(item.getServiceId().toString())
+                        .price(item.getUnitPrice())
+                        .build())
+                .distinct()
+                .toList()));
+        when(catalogClient.reserve(any())).thenReturn(Mono.just(true));
+        when(catalogClient.confirmReservation(anyString())).thenReturn(Mono.empty());
+        when(catalogClient.releaseReservation(anyString())).thenReturn(Mono.empty());
     }
 
     @Test
@@ -212,10 +242,228 @@ class CartServiceTest {
         Order order = cartService.checkout(TEST_USER_ID);
 
         assertNotNull(order);
-        assertEquals(Order.OrderStatus.COMPLETED, order.getStatus());
+        assertEquals(Order.OrderStatus.PENDING, order.getStatus());
         assertEquals(0, BigDecimal.valueOf(100.00).compareTo(order.getTotalAmount()));
         assertEquals(1, order.getItems().size());
         assertTrue(cartRepository.findByUserId(TEST_USER_ID).isEmpty());
+        assertEquals(1, jobRepository.findByOrderId(order.getId()).size());
+    }
+
+    @Test
+    void fulfillment_CompletesPendingOrder() {
+        cartRepository.save(CartItem.builder()
+                .userId(TEST_USER_ID)
+                .serviceId(TEST_SERVICE_ID)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(50.00))
+                .build());
+        Order order = cartService.checkout(TEST_USER_ID);
+
+        assertTrue(fulfillmentWorker.processNext());
+        assertFalse(fulfillmentWorker.processNext());
+
+        assertEquals(Order.OrderStatus.COMPLETED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertEquals(FulfillmentJob.JobStatus.DONE, jobRepository.findByOrderId(order.getId()).get(0).getStatus());
+        verify(catalogClient).confirmReservation(order.getId().toString());
+    }
+
+    @Test
+    void fulfillment_FailingStepIsRetriedLater() {
+        cartRepository.save(CartItem.builder()
+                .userId(TEST_USER_ID)
+                .serviceId(TEST_SERVICE_ID)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(50.00))
+                .build());
+        Order order = cartService.checkout(TEST_USER_ID);
+        when(catalogClient.confirmReservation(anyString()))
+                .thenReturn(Mono.error(new IllegalStateException("provider unavailable")));
+
+        assertTrue(fulfillmentWorker.processNext());
+
+        FulfillmentJob job = jobRepository.findByOrderId(order.getId()).get(0);
+        assertEquals(FulfillmentJob.JobStatus.QUEUED, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        assertEquals("provider unavailable", job.getLastError());
+        assertEquals(Order.OrderStatus.PENDING, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        // backoff keeps the job invisible to the next poll
+        assertFalse(fulfillmentWorker.processNext());
+    }
+
+    @Test
+    void fulfillment_ExpiredLeaseIsClaimedAgain() {
+        cartRepository.save(CartItem.builder()
+                .userId(TEST_USER_ID)
+                .serviceId(TEST_SERVICE_ID)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(50.00))
+                .build());
+        Order order = cartService.checkout(TEST_USER_ID);
+        // A worker claimed the job and died before recording the outcome
+        FulfillmentJob job = jobRepository.findByOrderId(order.getId()).get(0);
+        job.setStatus(FulfillmentJob.JobStatus.RUNNING);
+        job.setAttempts(1);
+        job.setAvailableAt(LocalDateTime.now().minusSeconds(1));
+        jobRepository.save(job);
+
+        assertTrue(fulfillmentWorker.processNext());
+
+        FulfillmentJob done = jobRepository.findByOrderId(order.getId()).get(0);
+        assertEquals(FulfillmentJob.JobStatus.DONE, done.getStatus());
+        assertEquals(2, done.getAttempts());
+        assertEquals(Order.OrderStatus.COMPLETED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void fulfillment_RunningJobIsNotClaimedBeforeLeaseEnds() {
+        cartRepository.save(CartItem.builder()
+                .userId(TEST_USER_ID)
+                .serviceId(TEST_SERVICE_ID)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(50.00))
+                .build());
+        Order order = cartService.checkout(TEST_USER_ID);
+        FulfillmentJob job = jobRepository.findByOrderId(order.getId()).get(0);
+        job.setStatus(FulfillmentJob.JobStatus.RUNNING);
+        job.setAvailableAt(LocalDateTime.now().plusMinutes(5));
+        jobRepository.save(job);
+
+        assertFalse(fulfillmentWorker.processNext());
+    }
+
+    @Test
+    void fulfillment_LastAttemptFails_CancelsAndReleases() {
+        Order order = checkoutOneItem();
+        lastAttemptPending(order);
+        when(catalogClient.confirmReservation(anyString()))
+                .thenReturn(Mono.error(new IllegalStateException("provider unavailable")));
+
+        assertTrue(fulfillmentWorker.processNext());
+
+        assertEquals(FulfillmentJob.JobStatus.FAILED, jobRepository.findByOrderId(order.getId()).get(0).getStatus());
+        assertEquals(Order.OrderStatus.CANCELLED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        verify(catalogClient).releaseReservation(order.getId().toString());
+    }
+
+    @Test
+    void fulfillment_LeaseLostDuringLastAttempt_LeavesReservationAlone() {
+        Order order = checkoutOneItem();
+        lastAttemptPending(order);
+        // While this worker is stuck, its lease runs out and another worker claims the job
+        when(catalogClient.confirmReservation(anyString())).thenAnswer(invocation -> {
+            FulfillmentJob job = jobRepository.findByOrderId(order.getId()).get(0);
+            job.setAttempts(job.getAttempts() + 1);
+            jobRepository.save(job);
+            return Mono.error(new IllegalStateException("provider unavailable"));
+        });
+
+        assertTrue(fulfillmentWorker.processNext());
+
+        verify(catalogClient, never()).releaseReservation(anyString());
+        assertEquals(Order.OrderStatus.PENDING, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertEquals(FulfillmentJob.JobStatus.RUNNING, jobRepository.findByOrderId(order.getId()).get(0).getStatus());
+    }
+
+    @Test
+    void fulfillment_ExpiredLeaseOnLastAttempt_GivesUpInsteadOfRetrying() {
+        Order order = checkoutOneItem();
+        // The last attempt hung past its lease
+        FulfillmentJob job = jobRepository.findByOrderId(order.getId()).get(0);
+        job.setStatus(FulfillmentJob.JobStatus.RUNNING);
+        job.setAttempts(5);
+        job.setAvailableAt(LocalDateTime.now().minusSeconds(1));
+        jobRepository.save(job);
+
+        assertTrue(fulfillmentWorker.processNext());
+        assertFalse(fulfillmentWorker.processNext());
+
+        FulfillmentJob failed = jobRepository.findByOrderId(order.getId()).get(0);
+        assertEquals(FulfillmentJob.JobStatus.FAILED, failed.getStatus());
+        assertEquals(5, failed.getAttempts());
+        assertEquals(Order.OrderStatus.CANCELLED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        verify(catalogClient, never()).confirmReservation(anyString());
+        verify(catalogClient).releaseReservation(order.getId().toString());
+    }
+
+    private Order checkoutOneItem() {
+        cartRepository.save(CartItem.builder()
+                .userId(TEST_USER_ID)
+                .serviceId(TEST_SERVICE_ID)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(50.00))
+                .build());
+        return cartService.checkout(TEST_USER_ID);
+    }
+
+    // max-attempts is 5: the next claim is the last attempt
+    private void lastAttemptPending(Order order) {
+        FulfillmentJob job = jobRepository.findByOrderId(order.getId()).get(0);
+        job.setAttempts(4);
+        jobRepository.save(job);
+    }
+
+    @Test
+    void addToCart_DifferentDates_SeparateLines() {
+        cartService.addToCart(TEST_USER_ID, TEST_SERVICE_ID, LocalDate.of(2030, 1, 10), 1);
+        cartService.addToCart(TEST_USER_ID, TEST_SERVICE_ID, LocalDate.of(2030, 1, 11), 1);
+        cartService.addToCart(TEST_USER_ID, TEST_SERVICE_ID, LocalDate.of(2030, 1, 10), 2);
+
+        List<CartItemDto> cart = cartService.getCart(TEST_USER_ID);
+        assertEquals(2, cart.size());
+        assertEquals(4, cart.stream().mapToInt(CartItemDto::getQuantity).sum());
+    }
+
+    @Test
+    void checkout_ReservationRejected_ThrowsException() {
+        cartService.addToCart(TEST_USER_ID, TEST_SERVICE_ID, LocalDate.of(2030, 1, 10), 3);
+        when(catalogClient.reserve(any())).thenReturn(Mono.just(false));
+
+        assertThrows(IllegalStateException.class, () -> cartService.checkout(TEST_USER_ID));
+    }
+
+    @Test
+    void checkout_ReservesUnderTheOrderId() {
+        cartService.addToCart(TEST_USER_ID, TEST_SERVICE_ID, LocalDate.of(2030, 1, 10), 3);
+
+        Order order = cartService.checkout(TEST_USER_ID);
+
+        verify(catalogClient).reserve(argThat(request -> request.getReference().equals(order.getId().toString())));
+        verify(catalogClient, never()).releaseReservation(anyString());
+        assertTrue(orderRepository.findById(order.getId()).isPresent());
+    }
+
+    @Test
+    void checkout_LocalWriteFails_ReleasesReservation() {
+        cartService.addToCart(TEST_USER_ID, TEST_SERVICE_ID, LocalDate.of(2030, 1, 10), 3);
+        doThrow(new IllegalStateException("database down")).when(fulfillmentWorker).enqueue(any());
+
+        assertThrows(IllegalStateException.class, () -> cartService.checkout(TEST_USER_ID));
+
+        verify(catalogClient).reserve(any());
+        verify(catalogClient).releaseReservation(anyString());
+    }
+
+    @Test
+    void checkout_PriceChanged_RepricesCartAndRejects() {
+        CartItem item = cartRepository.save(CartItem.builder()
+                .userId(TEST_USER_ID)
+                .serviceId(TEST_SERVICE_ID)
+                .serviceName("Test Service")
+                .quantity(2)
+                .unitPrice(BigDecimal.valueOf(50.00))
+                .build());
+        when(catalogClient.getPrices(any())).thenReturn(Mono.just(List.of(ServiceInfo.builder()
+                .id(TEST_SERVICE_ID.toString())
+                .price(BigDecimal.valueOf(65.00))
+                .build())));
+
+        PriceChangedException e = assertThrows(PriceChangedException.class, () -> cartService.checkout(TEST_USER_ID));
+
+        assertEquals(1, e.getChanges().size());
+        assertEquals(BigDecimal.valueOf(50.00), e.getChanges().get(0).getOldPrice());
+        assertEquals(BigDecimal.valueOf(65.00), e.getChanges().get(0).getNewPrice());
+        assertEquals(0, BigDecimal.valueOf(65.00).compareTo(cartRepository.findById(item.getId()).orElseThrow().getUnitPrice()));
+        assertTrue(orderRepository.findByUserIdOrderByCreatedAtDesc(TEST_USER_ID).isEmpty());
     }
 
     @Test
@@ -0,0 +1,33 @@
+package com.ecomp.common.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * Verifies each distinct bearer token once per node. Later requests carrying the same token are
+ * answered from a bounded cache keyed by the token's SHA-256, and each entry leaves the cache
+ * when the token expires. Tokens that fail verification are never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final VerifiedTokenCache verified;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxEntries) {
+        this.delegate = delegate;
+        this.verified = new VerifiedTokenCache(maxEntries);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = VerifiedTokenCache.key(token);
+        Jwt jwt = verified.get(key);
+        if (jwt != null) {
+            return jwt;
+        }
+        jwt = delegate.decode(token);
+        verified.put(key, jwt);
+        return jwt;
+    }
+}
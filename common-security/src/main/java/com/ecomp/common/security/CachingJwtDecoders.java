@@ -0,0 +1,66 @@
+package com.ecomp.common.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+/**
+ * Builds the resource servers' token decoders from the standard
+ * {@code spring.security.oauth2.resourceserver.jwt.*} properties plus {@code security.jwt.cache-size}
+ * and {@code security.jwt.jwks-refresh-minutes}. Signature and claims are checked once per token on
+ * each node; keys come from an in-memory JWK set refreshed in the background.
+ */
+public final class CachingJwtDecoders {
+
+    private static final String JWK_SET_URI = "spring.security.oauth2.resourceserver.jwt.jwk-set-uri";
+    private static final String ISSUER_URI = "spring.security.oauth2.resourceserver.jwt.issuer-uri";
+    private static final String CACHE_SIZE = "security.jwt.cache-size";
+    private static final String JWKS_REFRESH_MINUTES = "security.jwt.jwks-refresh-minutes";
+
+    private CachingJwtDecoders() {
+    }
+
+    public static JwtDecoder fromProperties(PropertyResolver properties) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256,
+                new RefreshingJwkSource(properties.getRequiredProperty(JWK_SET_URI), refreshInterval(properties))));
+        // Claims are validated by Spring below, as the auto-configured decoder does
+        processor.setJWTClaimsSetVerifier((claims, context) -> { });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(validator(properties));
+        return new CachingJwtDecoder(decoder, cacheSize(properties));
+    }
+
+    public static ReactiveJwtDecoder reactiveFromProperties(PropertyResolver properties, WebClient webClient) {
+        ReactiveJwkSetCache keys = new ReactiveJwkSetCache(webClient,
+                properties.getRequiredProperty(JWK_SET_URI), refreshInterval(properties));
+        NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(keys::keysFor).build();
+        decoder.setJwtValidator(validator(properties));
+        return new CachingReactiveJwtDecoder(decoder, cacheSize(properties));
+    }
+
+    private static OAuth2TokenValidator<Jwt> validator(PropertyResolver properties) {
+        String issuerUri = properties.getProperty(ISSUER_URI, "");
+        return issuerUri.isBlank() ? JwtValidators.createDefault() : JwtValidators.createDefaultWithIssuer(issuerUri);
+    }
+
+    private static long cacheSize(PropertyResolver properties) {
+        return properties.getProperty(CACHE_SIZE, Long.class, 10_000L);
+    }
+
+    private static Duration refreshInterval(PropertyResolver properties) {
+        return Duration.ofMinutes(properties.getProperty(JWKS_REFRESH_MINUTES, Long.class, 5L));
+    }
+}
@@ -0,0 +1,30 @@
+package com.ecomp.common.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link CachingJwtDecoder}: later requests and WebSocket handshakes
+ * carrying an already verified token are answered from the same kind of cache.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final VerifiedTokenCache verified;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, long maxEntries) {
+        this.delegate = delegate;
+        this.verified = new VerifiedTokenCache(maxEntries);
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        String key = VerifiedTokenCache.key(token);
+        Jwt cached = verified.get(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return delegate.decode(token).doOnNext(jwt -> verified.put(key, jwt));
+    }
+}
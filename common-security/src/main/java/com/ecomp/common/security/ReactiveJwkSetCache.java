@@ -0,0 +1,88 @@
+package com.ecomp.common.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the realm's key set in memory and reloads it in the background once it gets old, so
+ * a key rotation published by Keycloak is picked up before any token signed with it arrives.
+ * A token with an unknown kid still waits for one reload, at most once per cooldown, and
+ * concurrent callers share that download. Timeouts and cooldowns are those of {@link RefreshingJwkSource}.
+ */
+@Slf4j
+public class ReactiveJwkSetCache {
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final AtomicReference<Mono<JWKSet>> inFlight = new AtomicReference<>();
+
+    private volatile JWKSet jwkSet = new JWKSet();
+    private volatile long nextRefreshAt = System.nanoTime();
+    private long lastForcedReloadAt = System.nanoTime() - RefreshingJwkSource.UNKNOWN_KID_COOLDOWN.toNanos();
+
+    public ReactiveJwkSetCache(WebClient webClient, String jwkSetUri, Duration refreshInterval) {
+        this.webClient = webClient;
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = refreshInterval;
+        reload().subscribe();
+    }
+
+    public Flux<JWK> keysFor(SignedJWT jwt) {
+        if (System.nanoTime() - nextRefreshAt >= 0) {
+            reload().subscribe();
+        }
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        List<JWK> keys = selector.select(jwkSet);
+        if (!keys.isEmpty() || !forcedReloadAllowed()) {
+            return Flux.fromIterable(keys);
+        }
+        return reload().flatMapIterable(selector::select);
+    }
+
+    private synchronized boolean forcedReloadAllowed() {
+        long now = System.nanoTime();
+        if (now - lastForcedReloadAt < RefreshingJwkSource.UNKNOWN_KID_COOLDOWN.toNanos()) {
+            return false;
+        }
+        lastForcedReloadAt = now;
+        return true;
+    }
+
+    private Mono<JWKSet> reload() {
+        Mono<JWKSet> current = inFlight.get();
+        if (current != null) {
+            return current;
+        }
+        Mono<JWKSet> load = webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(RefreshingJwkSource.TIMEOUT)
+                .flatMap(body -> Mono.fromCallable(() -> JWKSet.parse(body)))
+                .doOnNext(loaded -> {
+                    jwkSet = loaded;
+                    nextRefreshAt = System.nanoTime() + refreshInterval.toNanos();
+                    log.debug("Loaded {} signing key(s) from {}", loaded.getKeys().size(), jwkSetUri);
+                })
+                .onErrorResume(e -> {
+                    nextRefreshAt = System.nanoTime() + RefreshingJwkSource.RETRY_AFTER_FAILURE.toNanos();
+                    log.warn("Could not load JWK set from {}: {}", jwkSetUri, e.getMessage());
+                    return Mono.just(jwkSet);
+                })
+                .doFinally(signal -> inFlight.set(null))
+                .cache();
+        return inFlight.compareAndSet(null, load) ? load : reload();
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecomp.common.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the realm's key set in memory and reloads it in the background once it gets old, so
+ * a key rotation published by Keycloak is picked up before any token signed with it arrives.
+ * A token with an unknown kid still forces one synchronous reload, at most once per cooldown.
+ */
+@Slf4j
+public class RefreshingJwkSource implements JWKSource<SecurityContext> {
+
+    static final Duration TIMEOUT = Duration.ofSeconds(2);
+    static final Duration RETRY_AFTER_FAILURE = Duration.ofSeconds(10);
+    static final Duration UNKNOWN_KID_COOLDOWN = Duration.ofSeconds(30);
+
+    private final URL jwkSetUrl;
+    private final Duration refreshInterval;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    // Not synchronized: a virtual thread blocked on the download inside a monitor pins its carrier
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile JWKSet jwkSet = new JWKSet();
+    private volatile long nextRefreshAt = System.nanoTime();
+    private long lastForcedReloadAt = System.nanoTime() - UNKNOWN_KID_COOLDOWN.toNanos();
+
+    public RefreshingJwkSource(String jwkSetUri, Duration refreshInterval) {
+        try {
+            this.jwkSetUrl = URI.create(jwkSetUri).toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid JWK set URI " + jwkSetUri, e);
+        }
+        this.refreshInterval = refreshInterval;
+        refreshInBackground();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) throws KeySourceException {
+        if (System.nanoTime() - nextRefreshAt >= 0) {
+            refreshInBackground();
+        }
+        List<JWK> keys = selector.select(jwkSet);
+        if (keys.isEmpty() && reloadForUnknownKey()) {
+            keys = selector.select(jwkSet);
+        }
+        return keys;
+    }
+
+    private void refreshInBackground() {
+        if (refreshing.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    reload();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Callers that miss together wait on one download; whoever comes after it within the
+     * cooldown just retries the selection against the set that download produced.
+     */
+    private boolean reloadForUnknownKey() {
+        reloadLock.lock();
+        try {
+            long now = System.nanoTime();
+            if (now - lastForcedReloadAt < UNKNOWN_KID_COOLDOWN.toNanos()) {
+                return true;
+            }
+            lastForcedReloadAt = now;
+            return reload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private boolean reload() {
+        reloadLock.lock();
+        try {
+            jwkSet = JWKSet.load(jwkSetUrl, (int) TIMEOUT.toMillis(), (int) TIMEOUT.toMillis(), 0);
+            nextRefreshAt = System.nanoTime() + refreshInterval.toNanos();
+            log.debug("Loaded {} signing key(s) from {}", jwkSet.getKeys().size(), jwkSetUrl);
+            return true;
+        } catch (IOException | ParseException e) {
+            nextRefreshAt = System.nanoTime() + RETRY_AFTER_FAILURE.toNanos();
+            log.warn("Could not load JWK set from {}: {}", jwkSetUrl, e.getMessage());
+            return false;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.ecomp.common.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Bounded map from a token's SHA-256 to the Jwt it verified into, shared by the blocking and
+ * reactive decoders. Each entry leaves the cache when the token expires.
+ */
+class VerifiedTokenCache {
+
+    private static final Duration NO_EXPIRY_TTL = Duration.ofMinutes(5);
+
+    private final Cache<String, Jwt> verified;
+
+    VerifiedTokenCache(long maxEntries) {
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                        return untilExpiry(jwt);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return untilExpiry(jwt);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    Jwt get(String key) {
+        return verified.getIfPresent(key);
+    }
+
+    void put(String key, Jwt jwt) {
+        verified.put(key, jwt);
+    }
+
+    static String key(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static long untilExpiry(Jwt jwt) {
+        if (jwt.getExpiresAt() == null) {
+            return NO_EXPIRY_TTL.toNanos();
+        }
+        return Math.max(0, Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos());
+    }
+}
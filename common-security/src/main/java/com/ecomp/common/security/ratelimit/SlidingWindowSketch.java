@@ -0,0 +1,123 @@
+package com.ecomp.common.security.ratelimit;
+
+import lombok.AllArgsConstructor;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Approximate per-key hit counts over a sliding window in fixed memory. Each window is a
+ * count-min sketch, and the previous window counts in proportion to how much of it still
+ * overlaps the sliding one. Estimates can overcount on hash collisions but never undercount
+ * within a window. Counters are atomics, so checking and recording never take a lock.
+ */
+public class SlidingWindowSketch {
+
+    private static final int DEPTH = 4;
+
+    private final int width;
+    private final long windowNanos;
+    private final AtomicReference<Windows> windows;
+
+    public SlidingWindowSketch(int width, Duration window) {
+        this.width = Integer.highestOneBit(Math.max(64, width));
+        this.windowNanos = window.toNanos();
+        this.windows = new AtomicReference<>(new Windows(System.nanoTime(), newCounters(), newCounters()));
+    }
+
+    /**
+     * Records a hit for the key unless that would take it to the limit or beyond.
+     *
+     * @return false when the key is over the limit; the rejected hit is not counted
+     */
+    public boolean tryAcquire(String key, long limit) {
+        long now = System.nanoTime();
+        Windows current = current(now);
+        int[] slots = slots(key);
+        if (estimate(current, slots, now) >= limit) {
+            return false;
+        }
+        add(current.counts, slots);
+        return true;
+    }
+
+    public void record(String key) {
+        add(current(System.nanoTime()).counts, slots(key));
+    }
+
+    public double estimate(String key) {
+        long now = System.nanoTime();
+        return estimate(current(now), slots(key), now);
+    }
+
+    /**
+     * Time until the oldest counted hits have slid out of the window, rounded up to seconds.
+     */
+    public long retryAfterSeconds() {
+        long remaining = windowNanos - (System.nanoTime() - windows.get().start);
+        return Math.max(1, Duration.ofNanos(Math.max(0, remaining)).toSeconds() + 1);
+    }
+
+    private double estimate(Windows current, int[] slots, long now) {
+        double overlap = 1.0 - (double) (now - current.start) / windowNanos;
+        return min(current.counts, slots) + Math.max(0, overlap) * min(current.previous, slots);
+    }
+
+    private Windows current(long now) {
+        Windows current = windows.get();
+        long elapsed = now - current.start;
+        if (elapsed < windowNanos) {
+            return current;
+        }
+        // Hits racing with the swap may land in the retired window; the count stays approximate
+        Windows next = elapsed < 2 * windowNanos
+                ? new Windows(current.start + windowNanos, newCounters(), current.counts)
+                : new Windows(now, newCounters(), newCounters());
+        windows.compareAndSet(current, next);
+        return windows.get();
+    }
+
+    private int[] slots(String key) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1;
+        int[] slots = new int[DEPTH];
+        for (int row = 0; row < DEPTH; row++) {
+            slots[row] = row * width + ((h1 + row * h2) & (width - 1));
+        }
+        return slots;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private static long min(AtomicLongArray counts, int[] slots) {
+        long min = Long.MAX_VALUE;
+        for (int slot : slots) {
+            min = Math.min(min, counts.get(slot));
+        }
+        return min;
+    }
+
+    private static void add(AtomicLongArray counts, int[] slots) {
+        for (int slot : slots) {
+            counts.incrementAndGet(slot);
+        }
+    }
+
+    private AtomicLongArray newCounters() {
+        return new AtomicLongArray(DEPTH * width);
+    }
+
+    @AllArgsConstructor
+    private static class Windows {
+        private final long start;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray previous;
+    }
+}
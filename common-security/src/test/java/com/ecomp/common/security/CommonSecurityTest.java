@@ -0,0 +1,218 @@
+package com.ecomp.common.security;
+
+import com.ecomp.common.security.ratelimit.SlidingWindowSketch;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonSecurityTest {
+
+    private final AtomicReference<JWKSet> published = new AtomicReference<>(new JWKSet());
+    private final AtomicInteger downloads = new AtomicInteger();
+    private HttpServer realm;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        realm = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        realm.createContext("/certs", exchange -> {
+            byte[] body = published.get().toString().getBytes(StandardCharsets.UTF_8);
+            downloads.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        realm.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        realm.stop(0);
+    }
+
+    @Test
+    void jwtDecoder_SameToken_VerifiedOnce() {
+        AtomicInteger verifications = new AtomicInteger();
+        JwtDecoder delegate = token -> {
+            verifications.incrementAndGet();
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("user-123")
+                    .expiresAt(Instant.now().plusSeconds(300))
+                    .build();
+        };
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100);
+
+        Jwt first = decoder.decode("token-a");
+        Jwt second = decoder.decode("token-a");
+        decoder.decode("token-b");
+
+        assertSame(first, second);
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    void jwkSource_UnknownKid_ReloadsOnceWithinCooldown() throws Exception {
+        RSAKey current = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        RSAKey rotated = new RSAKeyGenerator(2048).keyID("key-2").generate();
+        published.set(new JWKSet(current.toPublicJWK()));
+
+        RefreshingJwkSource source = new RefreshingJwkSource(
+                "http://127.0.0.1:" + realm.getAddress().getPort() + "/certs", Duration.ofHours(1));
+        awaitDownloads(1);
+        // Keycloak rotates before the next scheduled refresh
+        published.set(new JWKSet(List.of(current.toPublicJWK(), rotated.toPublicJWK())));
+
+        assertEquals(1, source.get(selectorFor("key-2"), null).size());
+        assertEquals(2, downloads.get());
+
+        // Another unknown kid inside the cooldown is answered from the set just loaded
+        assertTrue(source.get(selectorFor("key-3"), null).isEmpty());
+        assertEquals(1, source.get(selectorFor("key-1"), null).size());
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    void reactiveJwtDecoder_SameToken_VerifiedOnce_FailuresNotCached() {
+        AtomicInteger verifications = new AtomicInteger();
+        ReactiveJwtDecoder delegate = token -> {
+            verifications.incrementAndGet();
+            if (token.startsWith("bad")) {
+                return Mono.error(new BadJwtException("bad signature"));
+            }
+            return Mono.just(Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("user-123")
+                    .expiresAt(Instant.now().plusSeconds(300))
+                    .build());
+        };
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(delegate, 100);
+
+        Jwt first = decoder.decode("token-a").block();
+        assertSame(first, decoder.decode("token-a").block());
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad-token").block());
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad-token").block());
+
+        assertEquals(3, verifications.get());
+    }
+
+    @Test
+    void jwtDecoders_FromProperties_VerifyAgainstRealmKeys() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        published.set(new JWKSet(key.toPublicJWK()));
+        MockEnvironment properties = new MockEnvironment()
+                .withProperty("spring.security.oauth2.resourceserver.jwt.jwk-set-uri",
+                        "http://127.0.0.1:" + realm.getAddress().getPort() + "/certs")
+                .withProperty("spring.security.oauth2.resourceserver.jwt.issuer-uri", "http://realm")
+                .withProperty("security.jwt.jwks-refresh-minutes", "60");
+        String token = sign(key, "http://realm");
+        String foreign = sign(key, "http://other-realm");
+
+        JwtDecoder blocking = CachingJwtDecoders.fromProperties(properties);
+        ReactiveJwtDecoder reactive = CachingJwtDecoders.reactiveFromProperties(properties, WebClient.create());
+
+        assertEquals("user-123", blocking.decode(token).getSubject());
+        assertEquals("user-123", reactive.decode(token).block().getSubject());
+        assertThrows(JwtValidationException.class, () -> blocking.decode(foreign));
+        assertThrows(JwtValidationException.class, () -> reactive.decode(foreign).block());
+    }
+
+    @Test
+    void sketch_StopsAtLimit_WithoutCountingRejectedHits() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(1024, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(sketch.tryAcquire("10.0.0.1", 3));
+        }
+        assertFalse(sketch.tryAcquire("10.0.0.1", 3));
+        assertFalse(sketch.tryAcquire("10.0.0.1", 3));
+
+        assertEquals(3.0, sketch.estimate("10.0.0.1"));
+        assertTrue(sketch.tryAcquire("10.0.0.2", 3));
+    }
+
+    @Test
+    void sketch_Collisions_NeverUndercount() {
+        // Far more keys than counters per row, so most slots are shared
+        SlidingWindowSketch sketch = new SlidingWindowSketch(64, Duration.ofMinutes(1));
+        for (int i = 0; i < 1000; i++) {
+            sketch.record("key-" + i);
+        }
+        sketch.record("key-7");
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(sketch.estimate("key-" + i) >= (i == 7 ? 2 : 1));
+        }
+    }
+
+    @Test
+    void sketch_PreviousWindow_FadesOut() throws InterruptedException {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(1024, Duration.ofSeconds(1));
+        for (int i = 0; i < 10; i++) {
+            sketch.record("10.0.0.1");
+        }
+
+        Thread.sleep(1300);
+        // Part of the previous window still overlaps the sliding one
+        double partial = sketch.estimate("10.0.0.1");
+        assertTrue(partial > 0 && partial < 10, "estimate was " + partial);
+
+        Thread.sleep(1000);
+        assertEquals(0.0, sketch.estimate("10.0.0.1"));
+    }
+
+    private void awaitDownloads(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (downloads.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, downloads.get());
+    }
+
+    private static String sign(RSAKey key, String issuer) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder()
+                        .subject("user-123")
+                        .issuer(issuer)
+                        .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+                        .build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static JWKSelector selectorFor(String keyId) {
+        return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+    }
+}
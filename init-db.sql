@@ -21,6 +21,13 @@ CREATE TABLE IF NOT EXISTS users.user_profiles (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Registro de cambios de perfil; cada réplica lo consulta para invalidar su caché
+CREATE TABLE IF NOT EXISTS users.profile_changes (
+    id BIGSERIAL PRIMARY KEY,
+    keycloak_id VARCHAR(255) NOT NULL,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Tablas para service-catalog
 CREATE TABLE IF NOT EXISTS catalog.services (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
@@ -62,6 +69,29 @@ CREATE TABLE IF NOT EXISTS catalog.service_questions (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Cupos por servicio y fecha; las reservas se toman con un UPDATE condicional
+CREATE TABLE IF NOT EXISTS catalog.service_capacity (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    service_id UUID NOT NULL REFERENCES catalog.services(id) ON DELETE CASCADE,
+    slot_date DATE NOT NULL,
+    capacity INTEGER NOT NULL,
+    reserved INTEGER NOT NULL DEFAULT 0 CHECK (reserved >= 0 AND reserved <= capacity),
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE(service_id, slot_date)
+);
+
+CREATE TABLE IF NOT EXISTS catalog.reservations (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    reference VARCHAR(100) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    service_id UUID NOT NULL,
+    slot_date DATE NOT NULL,
+    quantity INTEGER NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'HELD',
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Tablas para cart-service
 CREATE TABLE IF NOT EXISTS cart.cart_items (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
@@ -69,18 +99,19 @@ CREATE TABLE IF NOT EXISTS cart.cart_items (
     service_id UUID NOT NULL,
     service_name VARCHAR(255),
     service_category VARCHAR(100),
+    service_date DATE,
     quantity INTEGER DEFAULT 1,
     unit_price DECIMAL(10,2),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    UNIQUE(user_id, service_id)
+    UNIQUE(user_id, service_id, service_date)
 );
 
 CREATE TABLE IF NOT EXISTS cart.orders (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
     user_id VARCHAR(255) NOT NULL,
     total_amount DECIMAL(10,2),
-    status VARCHAR(50) DEFAULT 'COMPLETED',
+    status VARCHAR(50) DEFAULT 'PENDING',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -89,11 +120,24 @@ CREATE TABLE IF NOT EXISTS cart.order_items (
     order_id UUID REFERENCES cart.orders(id) ON DELETE CASCADE,
     service_id UUID NOT NULL,
     service_name VARCHAR(255),
+    service_date DATE,
     quantity INTEGER,
     unit_price DECIMAL(10,2),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Cola de fulfilment de órdenes (procesada con SELECT ... FOR UPDATE SKIP LOCKED)
+CREATE TABLE IF NOT EXISTS cart.fulfillment_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    order_id UUID NOT NULL REFERENCES cart.orders(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Tablas para review-service
 CREATE TABLE IF NOT EXISTS reviews.reviews (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
@@ -111,8 +155,14 @@ CREATE TABLE IF NOT EXISTS reviews.reviews (
 CREATE INDEX IF NOT EXISTS idx_services_category ON catalog.services(category);
 CREATE INDEX IF NOT EXISTS idx_services_city ON catalog.services(city);
 CREATE INDEX IF NOT EXISTS idx_services_provider ON catalog.services(provider_id);
+-- Versiones para ETags: MAX(updated_at) sin recorrer la tabla
+CREATE INDEX IF NOT EXISTS idx_services_updated ON catalog.services(updated_at);
+CREATE INDEX IF NOT EXISTS idx_profile_changes_changed_at ON users.profile_changes(changed_at);
+CREATE INDEX IF NOT EXISTS idx_reservations_reference ON catalog.reservations(reference);
+CREATE INDEX IF NOT EXISTS idx_reservations_expiry ON catalog.reservations(status, expires_at);
 CREATE INDEX IF NOT EXISTS idx_cart_user ON cart.cart_items(user_id);
-CREATE INDEX IF NOT EXISTS idx_reviews_service ON reviews.reviews(service_id);
+CREATE INDEX IF NOT EXISTS idx_fulfillment_jobs_status ON cart.fulfillment_jobs(status, available_at);
+CREATE INDEX IF NOT EXISTS idx_reviews_service ON reviews.reviews(service_id, updated_at);
 CREATE INDEX IF NOT EXISTS idx_reviews_user ON reviews.reviews(user_id);
 
 -- Datos de ejemplo
@@ -5,12 +5,16 @@ import com.ecomp.review.service.ReviewService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,10 +27,23 @@ public class ReviewController {
 
     private final ReviewService reviewService;
 
+    @Value("${reviews.http-cache.max-age-seconds:30}")
+    private long maxAge;
+
     @GetMapping("/service/{serviceId}")
-    public ResponseEntity<List<ReviewDto>> getByServiceId(@PathVariable String serviceId) {
+    public ResponseEntity<List<ReviewDto>> getByServiceId(@PathVariable String serviceId, WebRequest request) {
+        UUID id = UUID.fromString(serviceId);
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePublic();
+        String etag = reviewService.getServiceReviewsEtag(id);
+        if (request.checkNotModified(etag)) {
+            // checkNotModified already set the 304 status and ETag header
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
         log.info("Getting reviews for service: {}", serviceId);
-        return ResponseEntity.ok(reviewService.getByServiceId(UUID.fromString(serviceId)));
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(reviewService.getByServiceId(id));
     }
 
     @GetMapping("/user/{userId}")
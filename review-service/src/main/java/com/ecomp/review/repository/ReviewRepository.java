@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,4 +29,13 @@ public interface ReviewRepository extends JpaRepository<Review, UUID> {
     
     @Query("SELECT COUNT(r) FROM Review r WHERE r.serviceId = :serviceId AND r.rating = :rating")
     Long countByServiceIdAndRating(UUID serviceId, Integer rating);
+
+    @Query("SELECT COUNT(r) AS count, MAX(r.updatedAt) AS lastUpdated FROM Review r WHERE r.serviceId = :serviceId")
+    ReviewsVersion findVersionByServiceId(UUID serviceId);
+
+    interface ReviewsVersion {
+        long getCount();
+
+        LocalDateTime getLastUpdated();
+    }
 }
@@ -3,11 +3,13 @@ package com.ecomp.review.service;
 import com.ecomp.review.dto.ReviewDtos.*;
 import com.ecomp.review.entity.Review;
 import com.ecomp.review.repository.ReviewRepository;
+import com.ecomp.review.repository.ReviewRepository.ReviewsVersion;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,6 +30,16 @@ public class ReviewService {
                 .collect(Collectors.toList());
     }
 
+    // Count catches deletions, latest updatedAt catches creates and edits
+    @Transactional(readOnly = true)
+    public String getServiceReviewsEtag(UUID serviceId) {
+        ReviewsVersion version = repository.findVersionByServiceId(serviceId);
+        long lastUpdated = version.getLastUpdated() != null
+                ? version.getLastUpdated().atZone(ZoneOffset.UTC).toInstant().toEpochMilli()
+                : 0;
+        return "\"reviews-" + serviceId + "-" + version.getCount() + "-" + lastUpdated + "\"";
+    }
+
     @Transactional(readOnly = true)
     public List<ReviewDto> getByUserId(String userId) {
         return repository.findByUserIdOrderByCreatedAtDesc(userId).stream()
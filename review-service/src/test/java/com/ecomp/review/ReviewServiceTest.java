@@ -210,4 +210,20 @@ class ReviewServiceTest {
         assertEquals(0, stats.getTwoStars());
         assertEquals(1, stats.getOneStar());
     }
+
+    @Test
+    void serviceReviewsEtag_ChangesWhenReviewsChange() {
+        String empty = reviewService.getServiceReviewsEtag(TEST_SERVICE_ID);
+
+        ReviewDto created = reviewService.create(TEST_USER_ID, "testuser", ReviewInput.builder()
+                .serviceId(TEST_SERVICE_ID.toString())
+                .rating(4)
+                .build());
+        String afterCreate = reviewService.getServiceReviewsEtag(TEST_SERVICE_ID);
+        assertNotEquals(empty, afterCreate);
+        assertEquals(afterCreate, reviewService.getServiceReviewsEtag(TEST_SERVICE_ID));
+
+        reviewService.delete(UUID.fromString(created.getId()), TEST_USER_ID);
+        assertNotEquals(afterCreate, reviewService.getServiceReviewsEtag(TEST_SERVICE_ID));
+    }
 }
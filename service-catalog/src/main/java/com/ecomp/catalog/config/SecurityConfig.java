@@ -1,7 +1,10 @@
 package com.ecomp.catalog.config;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -11,6 +14,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.List;
 
@@ -18,6 +23,18 @@ import java.util.List;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    public static final String SERVICE_TOKEN_HEADER = "X-Service-Token";
+
+    // Shared with cart-service: reservations are only placed, confirmed and released service-to-service
+    private final String serviceToken;
+
+    public SecurityConfig(@Value("${catalog.reservations.service-token}") String serviceToken) {
+        if (serviceToken.isBlank()) {
+            throw new IllegalStateException("catalog.reservations.service-token is blank; set CATALOG_SERVICE_TOKEN");
+        }
+        this.serviceToken = serviceToken;
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -25,12 +42,20 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/reservations/**").access((authentication, context) ->
+                                new AuthorizationDecision(hasServiceToken(context.getRequest())))
                         .anyRequest().permitAll()
                 );
 
         return http.build();
     }
 
+    private boolean hasServiceToken(HttpServletRequest request) {
+        String presented = request.getHeader(SERVICE_TOKEN_HEADER);
+        return presented != null && MessageDigest.isEqual(
+                presented.getBytes(StandardCharsets.UTF_8), serviceToken.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -0,0 +1,53 @@
+package com.ecomp.catalog.controller;
+
+import com.ecomp.catalog.dto.CatalogDtos.*;
+import com.ecomp.catalog.service.CapacityService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/reservations")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class ReservationController {
+
+    private final CapacityService capacityService;
+
+    @PostMapping
+    public ResponseEntity<List<ReservationDto>> reserve(@Valid @RequestBody ReservationRequest request) {
+        log.info("Reserving {} item(s) for reference {}", request.getItems().size(), request.getReference());
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(capacityService.reserve(request));
+        } catch (IllegalStateException e) {
+            log.info("Reservation {} rejected: {}", request.getReference(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @PostMapping("/{reference}/confirm")
+    public ResponseEntity<List<ReservationDto>> confirm(@PathVariable String reference) {
+        log.info("Confirming reservation {}", reference);
+        try {
+            return ResponseEntity.ok(capacityService.confirm(reference));
+        } catch (IllegalStateException e) {
+            log.warn("Reservation {} cannot be confirmed: {}", reference, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @DeleteMapping("/{reference}")
+    public ResponseEntity<Void> release(@PathVariable String reference) {
+        log.info("Releasing reservation {}", reference);
+        if (capacityService.release(reference)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
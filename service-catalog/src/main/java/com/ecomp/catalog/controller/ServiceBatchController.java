@@ -0,0 +1,33 @@
+package com.ecomp.catalog.controller;
+
+import com.ecomp.catalog.dto.CatalogDtos.*;
+import com.ecomp.catalog.service.TourismServiceService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+// Custom-method style path (/services:batchGet) can't live under the /services class mapping
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class ServiceBatchController {
+
+    private final TourismServiceService service;
+
+    @PostMapping("/services:batchGet")
+    public ResponseEntity<List<Map<String, Object>>> batchGet(@Valid @RequestBody BatchGetRequest request) {
+        log.info("Batch get of {} service(s), fields: {}", request.getIds().size(), request.getFields());
+        try {
+            return ResponseEntity.ok(service.batchGet(request.getIds(), request.getFields()));
+        } catch (IllegalArgumentException e) {
+            log.info("Rejected batch get: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
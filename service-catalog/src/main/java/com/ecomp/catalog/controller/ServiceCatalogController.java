@@ -1,17 +1,37 @@
 package com.ecomp.catalog.controller;
 
 import com.ecomp.catalog.dto.CatalogDtos.*;
+import com.ecomp.catalog.service.CapacityService;
+import com.ecomp.catalog.service.CatalogReadService;
 import com.ecomp.catalog.service.TourismServiceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,28 +43,115 @@ import java.util.UUID;
 public class ServiceCatalogController {
 
     private final TourismServiceService service;
+    private final CatalogReadService readService;
+    private final ObjectMapper objectMapper;
+    private final CapacityService capacityService;
+
+    @Value("${catalog.http-cache.listing-max-age-seconds:60}")
+    private long listingMaxAge;
+
+    @Value("${catalog.http-cache.service-max-age-seconds:30}")
+    private long serviceMaxAge;
+
+    @Value("${catalog.http-cache.country-max-age-seconds:86400}")
+    private long countryMaxAge;
+
+    @Value("${catalog.http-cache.weather-max-age-seconds:600}")
+    private long weatherMaxAge;
+
+    // Listings and single services are read over R2DBC: Flux bodies are collected into a JSON
+    // array, or streamed row by row when the client accepts application/x-ndjson
 
     @GetMapping
-    public ResponseEntity<List<ServiceDto>> getAll(@RequestParam(required = false) String filter) {
-        log.info("Getting services with filter: {}", filter);
-        List<ServiceDto> services = filter != null && !filter.isEmpty() 
-                ? service.search(filter) 
-                : service.getAll();
-        return ResponseEntity.ok(services);
+    public Mono<ResponseEntity<Flux<ServiceDto>>> getAll(@RequestParam(required = false) String filter,
+                                                         WebRequest request, HttpServletResponse response) {
+        cacheFor(response, publicCache(listingMaxAge));
+        // Cheap version check first; unchanged catalogs never load the listing
+        return readService.getCatalogEtag().map(etag -> {
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            log.info("Getting services with filter: {}", filter);
+            return ResponseEntity.ok().body(readService.getAll(filter));
+        });
+    }
+
+    /**
+     * Full catalog dump for partners: a JSON array, or one service per line when the client
+     * accepts application/x-ndjson. Services are serialized straight into the response as they
+     * come off the database cursor, so memory use does not depend on the catalog size.
+     */
+    @GetMapping("/export")
+    public void export(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                       HttpServletResponse response) throws IOException {
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        // Flushing is left to the buffers instead of a network write per service
+        ObjectWriter writer = objectMapper.writerFor(ServiceDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (SequenceWriter out = ndjson
+                ? writer.withRootValueSeparator("\n").writeValues(response.getOutputStream())
+                : writer.writeValuesAsArray(response.getOutputStream())) {
+            long exported = service.exportAll(dto -> {
+                try {
+                    out.write(dto);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("Exported {} services as {}", exported, ndjson ? "NDJSON" : "JSON");
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ServiceDto> getById(@PathVariable String id) {
-        log.info("Getting service by id: {}", id);
-        return service.getById(UUID.fromString(id))
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public Mono<ResponseEntity<ServiceDto>> getById(@PathVariable String id, WebRequest request,
+                                                    HttpServletResponse response) {
+        UUID serviceId = UUID.fromString(id);
+        cacheFor(response, publicCache(serviceMaxAge));
+        return readService.getServiceEtag(serviceId)
+                .flatMap(etag -> {
+                    if (request.checkNotModified(etag)) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<ServiceDto>build());
+                    }
+                    log.info("Getting service by id: {}", id);
+                    return readService.getById(serviceId).map(ResponseEntity::ok);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    cacheFor(response, CacheControl.noStore());
+                    return ResponseEntity.notFound().build();
+                }));
+    }
+
+    @GetMapping("/{id}/country-info")
+    public Mono<ResponseEntity<CountryInfoDto>> getCountryInfo(@PathVariable String id) {
+        return service.getCountryInfo(UUID.fromString(id))
+                .map(info -> info
+                        .map(dto -> ResponseEntity.ok().cacheControl(publicCache(countryMaxAge)).body(dto))
+                        .defaultIfEmpty(ResponseEntity.noContent().build()))
+                .orElse(Mono.just(ResponseEntity.notFound().build()));
+    }
+
+    @GetMapping("/{id}/weather")
+    public Mono<ResponseEntity<WeatherInfoDto>> getWeatherInfo(@PathVariable String id) {
+        return service.getWeatherInfo(UUID.fromString(id))
+                .map(info -> info
+                        .map(dto -> ResponseEntity.ok().cacheControl(publicCache(weatherMaxAge)).body(dto))
+                        .defaultIfEmpty(ResponseEntity.noContent().build()))
+                .orElse(Mono.just(ResponseEntity.notFound().build()));
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<ServiceDto>> getByCategory(@PathVariable String category) {
-        log.info("Getting services by category: {}", category);
-        return ResponseEntity.ok(service.getByCategory(category));
+    public Mono<ResponseEntity<Flux<ServiceDto>>> getByCategory(@PathVariable String category,
+                                                                WebRequest request, HttpServletResponse response) {
+        cacheFor(response, publicCache(listingMaxAge));
+        return readService.getCatalogEtag().map(etag -> {
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            log.info("Getting services by category: {}", category);
+            return ResponseEntity.ok().body(readService.getByCategory(category));
+        });
     }
 
     @GetMapping("/provider/{providerId}")
@@ -101,6 +208,42 @@ public class ServiceCatalogController {
         return ResponseEntity.notFound().build();
     }
 
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<List<AvailabilityDto>> getAvailability(
+            @PathVariable String id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(capacityService.getAvailability(UUID.fromString(id), from, to));
+    }
+
+    @PutMapping("/{id}/capacity")
+    @PreAuthorize("hasRole('PROVIDER')")
+    public ResponseEntity<AvailabilityDto> setCapacity(
+            @PathVariable String id,
+            @AuthenticationPrincipal Jwt jwt,
+            @Valid @RequestBody CapacityInput input) {
+        String providerId = jwt.getSubject();
+        log.info("Setting capacity of service {} on {} to {}", id, input.getDate(), input.getCapacity());
+
+        try {
+            return capacityService.setCapacity(UUID.fromString(id), providerId, input)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    private static CacheControl publicCache(long maxAgeSeconds) {
+        return CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+    }
+
+    // Async handlers complete after Spring Security has written its no-cache defaults, which it
+    // skips when Cache-Control is already there; checkNotModified sets the ETag header itself
+    private static void cacheFor(HttpServletResponse response, CacheControl cacheControl) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Service Catalog is healthy");
@@ -1,15 +1,26 @@
 package com.ecomp.catalog.dto;
 
+import com.ecomp.catalog.entity.Reservation;
+import com.ecomp.catalog.entity.ServiceCapacity;
 import com.ecomp.catalog.entity.ServiceImage;
+import com.ecomp.catalog.entity.ServiceImageRecord;
 import com.ecomp.catalog.entity.ServiceQuestion;
+import com.ecomp.catalog.entity.ServiceQuestionRecord;
+import com.ecomp.catalog.entity.ServiceRecord;
 import com.ecomp.catalog.entity.TourismService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -69,6 +80,30 @@ public class CatalogDtos {
                             List.of())
                     .build();
         }
+
+        public static ServiceDto fromRecord(ServiceRecord record, List<ServiceImageRecord> images,
+                                            List<ServiceQuestionRecord> questions) {
+            return ServiceDto.builder()
+                    .id(record.getId().toString())
+                    .providerId(record.getProviderId())
+                    .name(record.getName())
+                    .description(record.getDescription())
+                    .price(record.getPrice())
+                    .category(record.getCategory())
+                    .city(record.getCity())
+                    .countryCode(record.getCountryCode())
+                    .rating(record.getRating())
+                    .ratingCount(record.getRatingCount())
+                    .latitude(record.getLatitude())
+                    .longitude(record.getLongitude())
+                    .transportType(record.getTransportType())
+                    .departureTime(record.getDepartureTime())
+                    .arrivalTime(record.getArrivalTime())
+                    .routeDescription(record.getRouteDescription())
+                    .images(images.stream().map(ServiceImageDto::fromRecord).collect(Collectors.toList()))
+                    .questions(questions.stream().map(ServiceQuestionDto::fromRecord).collect(Collectors.toList()))
+                    .build();
+        }
     }
 
     @Data
@@ -129,6 +164,15 @@ public class CatalogDtos {
                     .isPrimary(entity.getIsPrimary())
                     .build();
         }
+
+        public static ServiceImageDto fromRecord(ServiceImageRecord record) {
+            return ServiceImageDto.builder()
+                    .id(record.getId().toString())
+                    .imageUrl(record.getImageUrl())
+                    .imageBase64(record.getImageBase64())
+                    .isPrimary(record.getIsPrimary())
+                    .build();
+        }
     }
 
     @Data
@@ -137,6 +181,7 @@ public class CatalogDtos {
     @AllArgsConstructor
     public static class ServiceQuestionDto {
         private String id;
+        private String serviceId;
         private String userId;
         private String question;
         private String answer;
@@ -147,6 +192,7 @@ public class CatalogDtos {
             if (entity == null) return null;
             return ServiceQuestionDto.builder()
                     .id(entity.getId().toString())
+                    .serviceId(entity.getService() != null ? entity.getService().getId().toString() : null)
                     .userId(entity.getUserId())
                     .question(entity.getQuestion())
                     .answer(entity.getAnswer())
@@ -154,6 +200,18 @@ public class CatalogDtos {
                     .createdAt(entity.getCreatedAt())
                     .build();
         }
+
+        public static ServiceQuestionDto fromRecord(ServiceQuestionRecord record) {
+            return ServiceQuestionDto.builder()
+                    .id(record.getId().toString())
+                    .serviceId(record.getServiceId().toString())
+                    .userId(record.getUserId())
+                    .question(record.getQuestion())
+                    .answer(record.getAnswer())
+                    .answeredAt(record.getAnsweredAt())
+                    .createdAt(record.getCreatedAt())
+                    .build();
+        }
     }
 
     @Data
@@ -191,4 +249,102 @@ public class CatalogDtos {
         private Double windSpeed;
         private String icon;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchGetRequest {
+        @NotEmpty(message = "At least one id is required")
+        @Size(max = 500, message = "At most 500 ids per request")
+        private List<String> ids;
+        // Optional projection; all catalog fields when empty
+        private List<String> fields;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CapacityInput {
+        @NotNull(message = "Date is required")
+        private LocalDate date;
+        @NotNull(message = "Capacity is required")
+        @Min(value = 0, message = "Capacity cannot be negative")
+        private Integer capacity;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AvailabilityDto {
+        private String serviceId;
+        private LocalDate date;
+        private Integer capacity;
+        private Integer remaining;
+
+        public static AvailabilityDto fromEntity(ServiceCapacity entity) {
+            if (entity == null) return null;
+            return AvailabilityDto.builder()
+                    .serviceId(entity.getServiceId().toString())
+                    .date(entity.getSlotDate())
+                    .capacity(entity.getCapacity())
+                    .remaining(entity.getRemaining())
+                    .build();
+        }
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReservationRequest {
+        @NotBlank(message = "Reference is required")
+        private String reference;
+        private String userId;
+        @NotEmpty(message = "At least one item is required")
+        @Valid
+        private List<ReservationItem> items;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReservationItem {
+        @NotBlank(message = "Service ID is required")
+        private String serviceId;
+        private LocalDate date;
+        @NotNull(message = "Quantity is required")
+        @Min(value = 1, message = "Quantity must be at least 1")
+        private Integer quantity;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReservationDto {
+        private String id;
+        private String reference;
+        private String serviceId;
+        private LocalDate date;
+        private Integer quantity;
+        private String status;
+        private LocalDateTime expiresAt;
+
+        public static ReservationDto fromEntity(Reservation entity) {
+            if (entity == null) return null;
+            return ReservationDto.builder()
+                    .id(entity.getId().toString())
+                    .reference(entity.getReference())
+                    .serviceId(entity.getServiceId().toString())
+                    .date(entity.getSlotDate())
+                    .quantity(entity.getQuantity())
+                    .status(entity.getStatus().name())
+                    .expiresAt(entity.getExpiresAt())
+                    .build();
+        }
+    }
 }
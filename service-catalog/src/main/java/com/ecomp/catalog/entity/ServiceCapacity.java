@@ -0,0 +1,44 @@
+package com.ecomp.catalog.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "service_capacity", schema = "catalog",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"service_id", "slot_date"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceCapacity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "service_id", nullable = false)
+    private UUID serviceId;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @Column(nullable = false)
+    private Integer capacity;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer reserved = 0;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public int getRemaining() {
+        return capacity - reserved;
+    }
+}
@@ -0,0 +1,26 @@
+package com.ecomp.catalog.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.util.UUID;
+
+/**
+ * Read-only R2DBC view of catalog.service_images.
+ */
+@Table(name = "service_images", schema = "catalog")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceImageRecord {
+
+    @Id
+    private UUID id;
+    private UUID serviceId;
+    private String imageUrl;
+    private String imageBase64;
+    private Boolean isPrimary;
+}
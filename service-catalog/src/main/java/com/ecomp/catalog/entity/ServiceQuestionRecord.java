@@ -0,0 +1,29 @@
+package com.ecomp.catalog.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read-only R2DBC view of catalog.service_questions.
+ */
+@Table(name = "service_questions", schema = "catalog")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceQuestionRecord {
+
+    @Id
+    private UUID id;
+    private UUID serviceId;
+    private String userId;
+    private String question;
+    private String answer;
+    private LocalDateTime answeredAt;
+    private LocalDateTime createdAt;
+}
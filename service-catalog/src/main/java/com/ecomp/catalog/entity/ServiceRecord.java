@@ -0,0 +1,40 @@
+package com.ecomp.catalog.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read-only R2DBC view of catalog.services. Writes go through the JPA entity {@link TourismService}.
+ */
+@Table(name = "services", schema = "catalog")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceRecord {
+
+    @Id
+    private UUID id;
+    private String providerId;
+    private String name;
+    private String description;
+    private BigDecimal price;
+    private String category;
+    private String city;
+    private String countryCode;
+    private BigDecimal rating;
+    private Integer ratingCount;
+    private Double latitude;
+    private Double longitude;
+    private String transportType;
+    private LocalDateTime departureTime;
+    private LocalDateTime arrivalTime;
+    private String routeDescription;
+    private LocalDateTime updatedAt;
+}
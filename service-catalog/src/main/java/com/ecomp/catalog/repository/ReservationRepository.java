@@ -0,0 +1,27 @@
+package com.ecomp.catalog.repository;
+
+import com.ecomp.catalog.entity.Reservation;
+import com.ecomp.catalog.entity.Reservation.ReservationStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ReservationRepository extends JpaRepository<Reservation, UUID> {
+
+    List<Reservation> findByReference(String reference);
+
+    List<Reservation> findByStatusAndExpiresAtBefore(ReservationStatus status, LocalDateTime now, Pageable pageable);
+
+    // Status changes are conditional so the expiry sweeper and confirm/release never both act on one hold
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Reservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int transition(@Param("id") UUID id, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+}
@@ -0,0 +1,37 @@
+package com.ecomp.catalog.repository;
+
+import com.ecomp.catalog.entity.ServiceCapacity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ServiceCapacityRepository extends JpaRepository<ServiceCapacity, UUID> {
+
+    Optional<ServiceCapacity> findByServiceIdAndSlotDate(UUID serviceId, LocalDate slotDate);
+
+    List<ServiceCapacity> findByServiceIdAndSlotDateBetweenOrderBySlotDate(UUID serviceId, LocalDate from, LocalDate to);
+
+    boolean existsByServiceId(UUID serviceId);
+
+    // Check-and-increment in one statement: no read-modify-write window. The row lock it takes is
+    // held until the enclosing reserve transaction commits, so keep that transaction short.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ServiceCapacity c SET c.reserved = c.reserved + :quantity " +
+           "WHERE c.serviceId = :serviceId AND c.slotDate = :slotDate AND c.capacity - c.reserved >= :quantity")
+    int tryReserve(@Param("serviceId") UUID serviceId, @Param("slotDate") LocalDate slotDate,
+                   @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ServiceCapacity c SET c.reserved = c.reserved - :quantity " +
+           "WHERE c.serviceId = :serviceId AND c.slotDate = :slotDate AND c.reserved >= :quantity")
+    int release(@Param("serviceId") UUID serviceId, @Param("slotDate") LocalDate slotDate,
+                @Param("quantity") int quantity);
+}
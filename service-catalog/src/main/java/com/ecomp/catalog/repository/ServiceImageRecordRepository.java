@@ -0,0 +1,15 @@
+package com.ecomp.catalog.repository;
+
+import com.ecomp.catalog.entity.ServiceImageRecord;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+public interface ServiceImageRecordRepository extends R2dbcRepository<ServiceImageRecord, UUID> {
+
+    Flux<ServiceImageRecord> findByServiceIdIn(Collection<UUID> serviceIds);
+}
@@ -0,0 +1,15 @@
+package com.ecomp.catalog.repository;
+
+import com.ecomp.catalog.entity.ServiceQuestionRecord;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+public interface ServiceQuestionRecordRepository extends R2dbcRepository<ServiceQuestionRecord, UUID> {
+
+    Flux<ServiceQuestionRecord> findByServiceIdIn(Collection<UUID> serviceIds);
+}
@@ -0,0 +1,51 @@
+package com.ecomp.catalog.repository;
+
+import com.ecomp.catalog.entity.ServiceRecord;
+import lombok.Data;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Non-blocking catalog reads over R2DBC; same tables as {@link TourismServiceRepository}.
+ */
+@Repository
+public interface ServiceRecordRepository extends R2dbcRepository<ServiceRecord, UUID> {
+
+    // Keyset pages ordered by id; pass a null id for the first page
+
+    @Query("SELECT * FROM catalog.services WHERE (:after IS NULL OR id > :after) ORDER BY id LIMIT :limit")
+    Flux<ServiceRecord> findPage(@Param("after") UUID after, @Param("limit") int limit);
+
+    @Query("SELECT * FROM catalog.services WHERE category = :category " +
+           "AND (:after IS NULL OR id > :after) ORDER BY id LIMIT :limit")
+    Flux<ServiceRecord> findPageByCategory(@Param("category") String category,
+                                           @Param("after") UUID after, @Param("limit") int limit);
+
+    @Query("SELECT * FROM catalog.services WHERE (" +
+           "LOWER(name) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+           "LOWER(description) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+           "LOWER(category) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+           "LOWER(city) LIKE LOWER(CONCAT('%', :filter, '%'))) " +
+           "AND (:after IS NULL OR id > :after) ORDER BY id LIMIT :limit")
+    Flux<ServiceRecord> searchPage(@Param("filter") String filter,
+                                   @Param("after") UUID after, @Param("limit") int limit);
+
+    @Query("SELECT COUNT(*) AS service_count, MAX(updated_at) AS last_updated FROM catalog.services")
+    Mono<CatalogVersion> findCatalogVersion();
+
+    @Query("SELECT updated_at FROM catalog.services WHERE id = :id")
+    Mono<LocalDateTime> findUpdatedAtById(@Param("id") UUID id);
+
+    @Data
+    class CatalogVersion {
+        private long serviceCount;
+        private LocalDateTime lastUpdated;
+    }
+}
@@ -1,13 +1,19 @@
 package com.ecomp.catalog.repository;
 
 import com.ecomp.catalog.entity.TourismService;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface TourismServiceRepository extends JpaRepository<TourismService, UUID> {
@@ -27,4 +33,25 @@ public interface TourismServiceRepository extends JpaRepository<TourismService,
 
     @Query("SELECT s FROM TourismService s ORDER BY s.rating DESC")
     List<TourismService> findTopRated();
+
+    // Forward-only cursor for exports; rows are fetched from the database in groups of 500 and
+    // loaded read-only, so Hibernate keeps no dirty-checking snapshots
+    @Query("SELECT s FROM TourismService s ORDER BY s.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<TourismService> streamAll();
+
+    @Query("SELECT COUNT(s) AS count, MAX(s.updatedAt) AS lastUpdated FROM TourismService s")
+    CatalogVersion findCatalogVersion();
+
+    @Query("SELECT s.updatedAt FROM TourismService s WHERE s.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") UUID id);
+
+    interface CatalogVersion {
+        long getCount();
+
+        LocalDateTime getLastUpdated();
+    }
 }
@@ -0,0 +1,179 @@
+package com.ecomp.catalog.service;
+
+import com.ecomp.catalog.dto.CatalogDtos.*;
+import com.ecomp.catalog.entity.Reservation;
+import com.ecomp.catalog.entity.Reservation.ReservationStatus;
+import com.ecomp.catalog.entity.ServiceCapacity;
+import com.ecomp.catalog.repository.ReservationRepository;
+import com.ecomp.catalog.repository.ServiceCapacityRepository;
+import com.ecomp.catalog.repository.TourismServiceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CapacityService {
+
+    private final ServiceCapacityRepository capacityRepository;
+    private final ReservationRepository reservationRepository;
+    private final TourismServiceRepository serviceRepository;
+
+    @Value("${catalog.reservations.hold-ttl-minutes:15}")
+    private long holdTtlMinutes;
+
+    @Value("${catalog.reservations.expiry-batch-size:200}")
+    private int expiryBatchSize;
+
+    @Transactional
+    public Optional<AvailabilityDto> setCapacity(UUID serviceId, String providerId, CapacityInput input) {
+        return serviceRepository.findById(serviceId)
+                .filter(s -> s.getProviderId().equals(providerId))
+                .map(s -> {
+                    ServiceCapacity slot = capacityRepository.findByServiceIdAndSlotDate(serviceId, input.getDate())
+                            .orElseGet(() -> ServiceCapacity.builder()
+                                    .serviceId(serviceId)
+                                    .slotDate(input.getDate())
+                                    .build());
+                    if (input.getCapacity() < slot.getReserved()) {
+                        throw new IllegalStateException("Capacity is below the " + slot.getReserved() + " places already reserved");
+                    }
+                    slot.setCapacity(input.getCapacity());
+                    log.info("Capacity for service {} on {} set to {}", serviceId, input.getDate(), input.getCapacity());
+                    return AvailabilityDto.fromEntity(capacityRepository.save(slot));
+                });
+    }
+
+    @Transactional(readOnly = true)
+    public List<AvailabilityDto> getAvailability(UUID serviceId, LocalDate from, LocalDate to) {
+        return capacityRepository.findByServiceIdAndSlotDateBetweenOrderBySlotDate(serviceId, from, to).stream()
+                .map(AvailabilityDto::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Holds places for every item or for none: a failed item throws and the transaction
+     * rolls back the increments already applied. Services without configured capacity
+     * are not limited and produce no hold.
+     */
+    @Transactional
+    public List<ReservationDto> reserve(ReservationRequest request) {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(holdTtlMinutes);
+        List<Reservation> held = new ArrayList<>();
+
+        // Fixed ordering so two multi-item reservations never lock the same rows in opposite order
+        List<ReservationItem> items = request.getItems().stream()
+                .sorted(Comparator.comparing(ReservationItem::getServiceId)
+                        .thenComparing(ReservationItem::getDate, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+
+        for (ReservationItem item : items) {
+            UUID serviceId = UUID.fromString(item.getServiceId());
+            if (item.getDate() == null) {
+                if (capacityRepository.existsByServiceId(serviceId)) {
+                    throw new IllegalStateException("A date is required to book service " + serviceId);
+                }
+                continue;
+            }
+            if (capacityRepository.tryReserve(serviceId, item.getDate(), item.getQuantity()) == 0) {
+                if (capacityRepository.findByServiceIdAndSlotDate(serviceId, item.getDate()).isEmpty()) {
+                    if (capacityRepository.existsByServiceId(serviceId)) {
+                        throw new IllegalStateException("Service " + serviceId + " is not bookable on " + item.getDate());
+                    }
+                    continue;
+                }
+                throw new IllegalStateException("Not enough capacity for service " + serviceId + " on " + item.getDate());
+            }
+            held.add(Reservation.builder()
+                    .reference(request.getReference())
+                    .userId(request.getUserId())
+                    .serviceId(serviceId)
+                    .slotDate(item.getDate())
+                    .quantity(item.getQuantity())
+                    .expiresAt(expiresAt)
+                    .build());
+        }
+
+        log.info("Reservation {} holds {} slot(s) until {}", request.getReference(), held.size(), expiresAt);
+        return reservationRepository.saveAll(held).stream()
+                .map(ReservationDto::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public List<ReservationDto> confirm(String reference) {
+        List<ReservationDto> confirmed = new ArrayList<>();
+        for (Reservation reservation : reservationRepository.findByReference(reference)) {
+            switch (reservation.getStatus()) {
+                case HELD -> transition(reservation, ReservationStatus.HELD, ReservationStatus.CONFIRMED);
+                case EXPIRED -> {
+                    // The hold lapsed before fulfilment got to it: take the places again if they are still free
+                    if (capacityRepository.tryReserve(reservation.getServiceId(), reservation.getSlotDate(),
+                            reservation.getQuantity()) == 0) {
+                        throw new IllegalStateException("Reservation " + reference + " expired and capacity is gone");
+                    }
+                    transition(reservation, ReservationStatus.EXPIRED, ReservationStatus.CONFIRMED);
+                }
+                case RELEASED -> throw new IllegalStateException("Reservation " + reference + " was released");
+                default -> {
+                }
+            }
+            confirmed.add(ReservationDto.fromEntity(reservation));
+        }
+        log.info("Reservation {} confirmed", reference);
+        return confirmed;
+    }
+
+    @Transactional
+    public boolean release(String reference) {
+        List<Reservation> reservations = reservationRepository.findByReference(reference);
+        for (Reservation reservation : reservations) {
+            ReservationStatus from = reservation.getStatus();
+            if ((from == ReservationStatus.HELD || from == ReservationStatus.CONFIRMED)
+                    && reservationRepository.transition(reservation.getId(), from, ReservationStatus.RELEASED) == 1) {
+                capacityRepository.release(reservation.getServiceId(), reservation.getSlotDate(), reservation.getQuantity());
+            }
+        }
+        log.info("Reservation {} released", reference);
+        return !reservations.isEmpty();
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.reservations.expiry-interval-ms:30000}")
+    @Transactional
+    public int expireHolds() {
+        List<Reservation> expired = reservationRepository.findByStatusAndExpiresAtBefore(
+                ReservationStatus.HELD, LocalDateTime.now(), PageRequest.of(0, expiryBatchSize));
+        int count = 0;
+        for (Reservation reservation : expired) {
+            if (reservationRepository.transition(reservation.getId(), ReservationStatus.HELD, ReservationStatus.EXPIRED) == 1) {
+                capacityRepository.release(reservation.getServiceId(), reservation.getSlotDate(), reservation.getQuantity());
+                count++;
+            }
+        }
+        if (count > 0) {
+            log.info("Expired {} reservation hold(s)", count);
+        }
+        return count;
+    }
+
+    private void transition(Reservation reservation, ReservationStatus from, ReservationStatus to) {
+        if (reservationRepository.transition(reservation.getId(), from, to) == 0) {
+            throw new IllegalStateException("Reservation " + reservation.getId() + " changed concurrently");
+        }
+        reservation.setStatus(to);
+    }
+}
@@ -0,0 +1,92 @@
+package com.ecomp.catalog.service;
+
+import com.ecomp.catalog.dto.CatalogDtos.ServiceDto;
+import com.ecomp.catalog.entity.ServiceImageRecord;
+import com.ecomp.catalog.entity.ServiceQuestionRecord;
+import com.ecomp.catalog.entity.ServiceRecord;
+import com.ecomp.catalog.repository.ServiceImageRecordRepository;
+import com.ecomp.catalog.repository.ServiceQuestionRecordRepository;
+import com.ecomp.catalog.repository.ServiceRecordRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * Non-blocking read path of the catalog over R2DBC; writes stay on {@link TourismServiceService}.
+ * Listings are read in keyset pages that are only fetched as the response is consumed, and each
+ * page gets its images and questions with one query per table. Queries of a request run one
+ * after the other, so a request never holds more than one pooled connection.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogReadService {
+
+    private final ServiceRecordRepository services;
+    private final ServiceImageRecordRepository images;
+    private final ServiceQuestionRecordRepository questions;
+
+    @Value("${catalog.reactive.page-size:100}")
+    private int pageSize;
+
+    public Flux<ServiceDto> getAll(String filter) {
+        if (filter == null || filter.isEmpty()) {
+            return paged(services::findPage);
+        }
+        return paged((after, limit) -> services.searchPage(filter, after, limit));
+    }
+
+    public Flux<ServiceDto> getByCategory(String category) {
+        return paged((after, limit) -> services.findPageByCategory(category, after, limit));
+    }
+
+    public Mono<ServiceDto> getById(UUID id) {
+        return services.findById(id)
+                .flatMap(record -> withChildren(List.of(record)).next());
+    }
+
+    public Mono<String> getCatalogEtag() {
+        return services.findCatalogVersion()
+                .map(version -> TourismServiceService.catalogEtag(version.getServiceCount(), version.getLastUpdated()));
+    }
+
+    public Mono<String> getServiceEtag(UUID id) {
+        return services.findUpdatedAtById(id)
+                .map(updatedAt -> TourismServiceService.serviceEtag(id, updatedAt));
+    }
+
+    private Flux<ServiceDto> paged(BiFunction<UUID, Integer, Flux<ServiceRecord>> page) {
+        return page.apply(null, pageSize).collectList()
+                .expand(rows -> rows.size() < pageSize
+                        ? Mono.empty()
+                        : page.apply(rows.get(rows.size() - 1).getId(), pageSize).collectList())
+                .filter(rows -> !rows.isEmpty())
+                // At most one page is read ahead of what the client has consumed
+                .concatMap(this::withChildren, 1);
+    }
+
+    private Flux<ServiceDto> withChildren(List<ServiceRecord> rows) {
+        List<UUID> ids = rows.stream().map(ServiceRecord::getId).toList();
+        return images.findByServiceIdIn(ids).collectMultimap(ServiceImageRecord::getServiceId)
+                .flatMap(imagesById -> questions.findByServiceIdIn(ids)
+                        .collectMultimap(ServiceQuestionRecord::getServiceId)
+                        .map(questionsById -> rows.stream()
+                                .map(row -> ServiceDto.fromRecord(row,
+                                        childrenOf(imagesById, row.getId()),
+                                        childrenOf(questionsById, row.getId())))
+                                .toList()))
+                .flatMapIterable(dtos -> dtos);
+    }
+
+    private static <T> List<T> childrenOf(Map<UUID, Collection<T>> byServiceId, UUID serviceId) {
+        Collection<T> children = byServiceId.get(serviceId);
+        return children != null ? List.copyOf(children) : List.of();
+    }
+}
@@ -6,17 +6,30 @@ import com.ecomp.catalog.entity.ServiceQuestion;
 import com.ecomp.catalog.entity.TourismService;
 import com.ecomp.catalog.repository.ServiceQuestionRepository;
 import com.ecomp.catalog.repository.TourismServiceRepository;
+import com.ecomp.catalog.repository.TourismServiceRepository.CatalogVersion;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -26,6 +39,11 @@ public class TourismServiceService {
     private final TourismServiceRepository repository;
     private final ServiceQuestionRepository questionRepository;
     private final ExternalApiClient externalApiClient;
+    private final EntityManager entityManager;
+
+    // Matches hibernate.default_batch_fetch_size, so a chunk's collections load in one query each
+    @Value("${catalog.export.chunk-size:50}")
+    private int exportChunkSize;
 
     @Transactional(readOnly = true)
     public List<ServiceDto> getAll() {
@@ -34,6 +52,36 @@ public class TourismServiceService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Hands every service to the sink in id order without holding the catalog in memory. Rows
+     * come from a database cursor; each chunk gets its images and questions through batch
+     * fetching and is detached once converted, so the persistence context never grows past
+     * one chunk.
+     *
+     * @return the number of services exported
+     */
+    @Transactional(readOnly = true)
+    public long exportAll(Consumer<ServiceDto> sink) {
+        long exported = 0;
+        try (Stream<TourismService> rows = repository.streamAll()) {
+            Iterator<TourismService> cursor = rows.iterator();
+            List<TourismService> chunk = new ArrayList<>(exportChunkSize);
+            while (cursor.hasNext()) {
+                chunk.add(cursor.next());
+                if (chunk.size() == exportChunkSize || !cursor.hasNext()) {
+                    for (TourismService entity : chunk) {
+                        sink.accept(ServiceDto.fromEntity(entity));
+                    }
+                    // Cascades to the images and questions that were just loaded
+                    chunk.forEach(entityManager::detach);
+                    exported += chunk.size();
+                    chunk.clear();
+                }
+            }
+        }
+        return exported;
+    }
+
     @Transactional(readOnly = true)
     public List<ServiceDto> search(String filter) {
         if (filter == null || filter.isEmpty()) {
@@ -47,22 +95,102 @@ public class TourismServiceService {
     @Transactional(readOnly = true)
     public Optional<ServiceDto> getById(UUID id) {
         return repository.findById(id)
-                .map(service -> {
-                    ServiceDto dto = ServiceDto.fromEntity(service);
-                    
-                    // Enrich with external API data
-                    if (service.getCountryCode() != null) {
-                        externalApiClient.getCountryInfo(service.getCountryCode())
-                                .subscribe(countryInfo -> dto.setCountryInfo(countryInfo));
-                    }
-                    
-                    if (service.getCity() != null) {
-                        externalApiClient.getWeatherInfo(service.getCity(), service.getCountryCode())
-                                .subscribe(weatherInfo -> dto.setWeatherInfo(weatherInfo));
-                    }
-                    
-                    return dto;
-                });
+                .map(ServiceDto::fromEntity);
+    }
+
+    // External enrichment is served separately so the service itself never waits on a third-party API
+    @Transactional(readOnly = true)
+    public Optional<Mono<CountryInfoDto>> getCountryInfo(UUID id) {
+        return repository.findById(id)
+                .map(service -> externalApiClient.getCountryInfo(service.getCountryCode()));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Mono<WeatherInfoDto>> getWeatherInfo(UUID id) {
+        return repository.findById(id)
+                .map(service -> externalApiClient.getWeatherInfo(service.getCity(), service.getCountryCode()));
+    }
+
+    private static final Map<String, Function<TourismService, Object>> BATCH_FIELDS = new LinkedHashMap<>();
+
+    static {
+        BATCH_FIELDS.put("id", s -> s.getId().toString());
+        BATCH_FIELDS.put("providerId", TourismService::getProviderId);
+        BATCH_FIELDS.put("name", TourismService::getName);
+        BATCH_FIELDS.put("description", TourismService::getDescription);
+        BATCH_FIELDS.put("price", TourismService::getPrice);
+        BATCH_FIELDS.put("category", TourismService::getCategory);
+        BATCH_FIELDS.put("city", TourismService::getCity);
+        BATCH_FIELDS.put("countryCode", TourismService::getCountryCode);
+        BATCH_FIELDS.put("rating", TourismService::getRating);
+        BATCH_FIELDS.put("ratingCount", TourismService::getRatingCount);
+        BATCH_FIELDS.put("latitude", TourismService::getLatitude);
+        BATCH_FIELDS.put("longitude", TourismService::getLongitude);
+        BATCH_FIELDS.put("transportType", TourismService::getTransportType);
+        BATCH_FIELDS.put("departureTime", TourismService::getDepartureTime);
+        BATCH_FIELDS.put("arrivalTime", TourismService::getArrivalTime);
+        BATCH_FIELDS.put("routeDescription", TourismService::getRouteDescription);
+        BATCH_FIELDS.put("images", s -> s.getImages().stream().map(ServiceImageDto::fromEntity).collect(Collectors.toList()));
+        BATCH_FIELDS.put("questions", s -> s.getQuestions().stream().map(ServiceQuestionDto::fromEntity).collect(Collectors.toList()));
+    }
+
+    /**
+     * Loads many services with one IN query and no external enrichment. Results follow the
+     * request order, with null where an id does not exist.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> batchGet(List<String> ids, List<String> fields) {
+        List<String> projection = fields == null || fields.isEmpty() ? List.copyOf(BATCH_FIELDS.keySet()) : fields;
+        for (String field : projection) {
+            if (!BATCH_FIELDS.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+
+        List<UUID> uuids = ids.stream().map(UUID::fromString).collect(Collectors.toList());
+        Map<UUID, TourismService> found = repository.findAllById(new LinkedHashSet<>(uuids)).stream()
+                .collect(Collectors.toMap(TourismService::getId, Function.identity()));
+
+        List<Map<String, Object>> results = new ArrayList<>(uuids.size());
+        for (UUID id : uuids) {
+            TourismService entity = found.get(id);
+            if (entity == null) {
+                results.add(null);
+                continue;
+            }
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (String field : projection) {
+                record.put(field, BATCH_FIELDS.get(field).apply(entity));
+            }
+            results.add(record);
+        }
+        return results;
+    }
+
+    // Any insert, update or delete changes either the row count or the latest updatedAt
+    @Transactional(readOnly = true)
+    public String getCatalogEtag() {
+        CatalogVersion version = repository.findCatalogVersion();
+        return catalogEtag(version.getCount(), version.getLastUpdated());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<String> getServiceEtag(UUID id) {
+        return repository.findUpdatedAtById(id)
+                .map(updatedAt -> serviceEtag(id, updatedAt));
+    }
+
+    // Shared with the R2DBC read path, so both answer with the same validators
+    static String catalogEtag(long count, LocalDateTime lastUpdated) {
+        return "\"catalog-" + count + "-" + toEpochMillis(lastUpdated) + "\"";
+    }
+
+    static String serviceEtag(UUID id, LocalDateTime updatedAt) {
+        return "\"service-" + id + "-" + toEpochMillis(updatedAt) + "\"";
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneOffset.UTC).toInstant().toEpochMilli() : 0;
     }
 
     @Transactional(readOnly = true)
@@ -146,6 +274,8 @@ public class TourismServiceService {
                             .question(question)
                             .build();
                     service.addQuestion(q);
+                    // Questions are part of the service representation, so bump its version
+                    service.setUpdatedAt(LocalDateTime.now());
                     repository.save(service);
                     
                     log.info("Question added to service {}", serviceId);
@@ -161,6 +291,7 @@ public class TourismServiceService {
                     question.setAnswer(answer);
                     question.setAnsweredAt(LocalDateTime.now());
                     questionRepository.save(question);
+                    question.getService().setUpdatedAt(LocalDateTime.now());
                     
                     log.info("Question {} answered", questionId);
                     return ServiceQuestionDto.fromEntity(question);
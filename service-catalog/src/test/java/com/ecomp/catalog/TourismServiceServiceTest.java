@@ -1,24 +1,42 @@
 package com.ecomp.catalog;
 
 import com.ecomp.catalog.dto.CatalogDtos.*;
+import com.ecomp.catalog.entity.Reservation;
+import com.ecomp.catalog.entity.ServiceImage;
 import com.ecomp.catalog.entity.TourismService;
+import com.ecomp.catalog.repository.ReservationRepository;
+import com.ecomp.catalog.repository.ServiceCapacityRepository;
 import com.ecomp.catalog.repository.TourismServiceRepository;
+import com.ecomp.catalog.service.CapacityService;
+import com.ecomp.catalog.service.CatalogReadService;
 import com.ecomp.catalog.service.TourismServiceService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 @ActiveProfiles("test")
 @Transactional
 class TourismServiceServiceTest {
@@ -29,10 +47,27 @@ class TourismServiceServiceTest {
     @Autowired
     private TourismServiceRepository repository;
 
+    @Autowired
+    private CatalogReadService readService;
+
+    @Autowired
+    private CapacityService capacityService;
+
+    @Autowired
+    private ServiceCapacityRepository capacityRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
     private static final String TEST_PROVIDER_ID = "provider-123";
 
     @BeforeEach
     void setUp() {
+        reservationRepository.deleteAll();
+        capacityRepository.deleteAll();
         repository.deleteAll();
     }
 
@@ -79,6 +114,12 @@ class TourismServiceServiceTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void enrichment_UnknownService_Empty() {
+        assertTrue(service.getCountryInfo(UUID.randomUUID()).isEmpty());
+        assertTrue(service.getWeatherInfo(UUID.randomUUID()).isEmpty());
+    }
+
     @Test
     void search_ByName() {
         repository.save(TourismService.builder()
@@ -255,4 +296,227 @@ class TourismServiceServiceTest {
         assertEquals(2, updated.getRatingCount());
         assertEquals(BigDecimal.valueOf(4.0).setScale(1), updated.getRating());
     }
+
+    @Test
+    void catalogEtag_ChangesOnCreateAndQuestion() {
+        TourismService saved = repository.saveAndFlush(TourismService.builder()
+                .providerId(TEST_PROVIDER_ID)
+                .name("Versioned Service")
+                .build());
+        String catalogEtag = service.getCatalogEtag();
+        String serviceEtag = service.getServiceEtag(saved.getId()).orElseThrow();
+
+        assertEquals(catalogEtag, service.getCatalogEtag());
+
+        service.askQuestion(saved.getId(), "user-123", "Pets allowed?");
+        repository.flush();
+
+        assertNotEquals(serviceEtag, service.getServiceEtag(saved.getId()).orElseThrow());
+        assertNotEquals(catalogEtag, service.getCatalogEtag());
+        assertTrue(service.getServiceEtag(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void exportAll_StreamsEveryServiceInIdOrderWithChildren() {
+        // The export opens its own read-only transaction, so it has to see committed rows
+        try {
+            TourismService withImage = TourismService.builder()
+                    .providerId(TEST_PROVIDER_ID).name("Export 0").build();
+            withImage.getImages().add(ServiceImage.builder()
+                    .service(withImage).imageUrl("https://example.com/export.jpg").build());
+            repository.save(withImage);
+            for (int i = 1; i < 120; i++) {
+                repository.save(TourismService.builder().providerId(TEST_PROVIDER_ID).name("Export " + i).build());
+            }
+            service.askQuestion(withImage.getId(), "user-123", "Guided?");
+
+            List<ServiceDto> exported = new ArrayList<>();
+            long count = service.exportAll(exported::add);
+
+            assertEquals(120, count);
+            assertEquals(120, exported.size());
+            List<String> ids = exported.stream().map(ServiceDto::getId).toList();
+            assertEquals(ids.stream().sorted().toList(), ids);
+            ServiceDto first = exported.stream()
+                    .filter(dto -> dto.getId().equals(withImage.getId().toString()))
+                    .findFirst().orElseThrow();
+            assertEquals(1, first.getImages().size());
+            assertEquals("Guided?", first.getQuestions().get(0).getQuestion());
+        } finally {
+            repository.deleteAll();
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void reactiveReads_PageThroughCommittedRowsWithChildren() {
+        // R2DBC uses its own connections, so the rows have to be committed
+        ReflectionTestUtils.setField(readService, "pageSize", 2);
+        try {
+            TourismService canopy = TourismService.builder()
+                    .providerId(TEST_PROVIDER_ID).name("Canopy Walk").category("Aventura").city("Leticia")
+                    .build();
+            canopy.getImages().add(ServiceImage.builder()
+                    .service(canopy).imageUrl("https://example.com/canopy.jpg").isPrimary(true).build());
+            ServiceDto withChildren = ServiceDto.fromEntity(repository.save(canopy));
+            service.askQuestion(UUID.fromString(withChildren.getId()), "user-123", "Minimum age?");
+            for (int i = 0; i < 4; i++) {
+                service.create(TEST_PROVIDER_ID, ServiceInput.builder()
+                        .name("River Tour " + i).category("Aventura").city("Puerto Narino").build());
+            }
+            service.create(TEST_PROVIDER_ID, ServiceInput.builder()
+                    .name("Jungle Lodge").category("Alojamiento").city("Leticia").build());
+
+            List<ServiceDto> adventures = readService.getByCategory("Aventura").collectList().block();
+            assertEquals(5, adventures.size());
+            assertEquals(5, adventures.stream().map(ServiceDto::getId).distinct().count());
+            assertEquals(6, readService.getAll(null).collectList().block().size());
+            assertEquals(2, readService.getAll("leticia").collectList().block().size());
+
+            ServiceDto read = readService.getById(UUID.fromString(withChildren.getId())).block();
+            assertEquals("Canopy Walk", read.getName());
+            assertEquals(1, read.getImages().size());
+            assertEquals("Minimum age?", read.getQuestions().get(0).getQuestion());
+            assertEquals(withChildren.getId(), read.getQuestions().get(0).getServiceId());
+            assertNull(readService.getById(UUID.randomUUID()).block());
+
+            assertEquals(service.getCatalogEtag(), readService.getCatalogEtag().block());
+            UUID id = UUID.fromString(withChildren.getId());
+            assertEquals(service.getServiceEtag(id).orElseThrow(), readService.getServiceEtag(id).block());
+        } finally {
+            ReflectionTestUtils.setField(readService, "pageSize", 100);
+            repository.deleteAll();
+        }
+    }
+
+    @Test
+    void batchGet_KeepsRequestOrderWithNullsForMisses() {
+        TourismService first = repository.save(TourismService.builder()
+                .providerId(TEST_PROVIDER_ID)
+                .name("First")
+                .price(BigDecimal.valueOf(80.00))
+                .build());
+        TourismService second = repository.save(TourismService.builder()
+                .providerId(TEST_PROVIDER_ID)
+                .name("Second")
+                .price(BigDecimal.valueOf(20.00))
+                .build());
+
+        List<Map<String, Object>> results = service.batchGet(
+                List.of(second.getId().toString(), UUID.randomUUID().toString(), first.getId().toString()),
+                List.of("id", "price"));
+
+        assertEquals(3, results.size());
+        assertEquals(second.getId().toString(), results.get(0).get("id"));
+        assertNull(results.get(1));
+        assertEquals(BigDecimal.valueOf(80.00), results.get(2).get("price"));
+        assertEquals(2, results.get(2).size());
+    }
+
+    @Test
+    void batchGet_UnknownField_Rejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+                service.batchGet(List.of(UUID.randomUUID().toString()), List.of("secret")));
+    }
+
+    @Test
+    void reserve_WithinCapacity_HoldsPlaces() {
+        UUID serviceId = serviceWithCapacity(LocalDate.of(2030, 1, 10), 5);
+
+        List<ReservationDto> held = capacityService.reserve(reservationFor("order-1", serviceId, LocalDate.of(2030, 1, 10), 3));
+
+        assertEquals(1, held.size());
+        assertEquals("HELD", held.get(0).getStatus());
+        assertEquals(2, capacityService.getAvailability(serviceId, LocalDate.of(2030, 1, 10), LocalDate.of(2030, 1, 10))
+                .get(0).getRemaining());
+    }
+
+    @Test
+    void reserve_OverCapacity_Rejected() {
+        UUID serviceId = serviceWithCapacity(LocalDate.of(2030, 1, 10), 2);
+        capacityService.reserve(reservationFor("order-1", serviceId, LocalDate.of(2030, 1, 10), 2));
+
+        assertThrows(IllegalStateException.class, () ->
+                capacityService.reserve(reservationFor("order-2", serviceId, LocalDate.of(2030, 1, 10), 1)));
+    }
+
+    @Test
+    void reserve_ServiceWithoutCapacity_IsUnlimited() {
+        TourismService saved = repository.save(TourismService.builder()
+                .providerId(TEST_PROVIDER_ID)
+                .name("Open Restaurant")
+                .build());
+
+        List<ReservationDto> held = capacityService.reserve(reservationFor("order-1", saved.getId(), null, 50));
+
+        assertTrue(held.isEmpty());
+    }
+
+    @Test
+    void expireHolds_ReleasesCapacity() {
+        LocalDate date = LocalDate.of(2030, 1, 10);
+        UUID serviceId = serviceWithCapacity(date, 2);
+        capacityService.reserve(reservationFor("order-1", serviceId, date, 2));
+        Reservation hold = reservationRepository.findByReference("order-1").get(0);
+        hold.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        reservationRepository.saveAndFlush(hold);
+
+        assertEquals(1, capacityService.expireHolds());
+
+        assertEquals(2, capacityService.getAvailability(serviceId, date, date).get(0).getRemaining());
+        assertEquals(Reservation.ReservationStatus.EXPIRED, reservationRepository.findByReference("order-1").get(0).getStatus());
+    }
+
+    @Test
+    void confirmAndRelease_UpdateReservationStatus() {
+        LocalDate date = LocalDate.of(2030, 1, 10);
+        UUID serviceId = serviceWithCapacity(date, 4);
+        capacityService.reserve(reservationFor("order-1", serviceId, date, 3));
+
+        assertEquals("CONFIRMED", capacityService.confirm("order-1").get(0).getStatus());
+        assertTrue(capacityService.release("order-1"));
+
+        assertEquals(4, capacityService.getAvailability(serviceId, date, date).get(0).getRemaining());
+    }
+
+    @Test
+    void reservationEndpoints_RequireServiceToken() throws Exception {
+        LocalDate date = LocalDate.of(2030, 1, 10);
+        UUID serviceId = serviceWithCapacity(date, 4);
+        capacityService.reserve(reservationFor("order-1", serviceId, date, 3));
+
+        mockMvc.perform(post("/reservations/order-1/confirm")).andExpect(status().isForbidden());
+        mockMvc.perform(delete("/reservations/order-1").header("X-Service-Token", "guess"))
+                .andExpect(status().isForbidden());
+        assertEquals(1, capacityService.getAvailability(serviceId, date, date).get(0).getRemaining());
+
+        mockMvc.perform(delete("/reservations/order-1").header("X-Service-Token", "test-service-token"))
+                .andExpect(status().isNoContent());
+        assertEquals(4, capacityService.getAvailability(serviceId, date, date).get(0).getRemaining());
+    }
+
+    private UUID serviceWithCapacity(LocalDate date, int capacity) {
+        TourismService saved = repository.save(TourismService.builder()
+                .providerId(TEST_PROVIDER_ID)
+                .name("Eco Lodge")
+                .build());
+        capacityService.setCapacity(saved.getId(), TEST_PROVIDER_ID, CapacityInput.builder()
+                .date(date)
+                .capacity(capacity)
+                .build());
+        return saved.getId();
+    }
+
+    private ReservationRequest reservationFor(String reference, UUID serviceId, LocalDate date, int quantity) {
+        return ReservationRequest.builder()
+                .reference(reference)
+                .userId("user-123")
+                .items(List.of(ReservationItem.builder()
+                        .serviceId(serviceId.toString())
+                        .date(date)
+                        .quantity(quantity)
+                        .build()))
+                .build();
+    }
 }
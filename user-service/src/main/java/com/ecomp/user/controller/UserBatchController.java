@@ -0,0 +1,27 @@
+package com.ecomp.user.controller;
+
+import com.ecomp.user.dto.UserDtos.*;
+import com.ecomp.user.service.UserProfileService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Custom-method style path (/users:batchGet) can't live under the /users class mapping
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class UserBatchController {
+
+    private final UserProfileService service;
+
+    @PostMapping("/users:batchGet")
+    public ResponseEntity<List<UserSummaryDto>> batchGet(@Valid @RequestBody BatchGetRequest request) {
+        log.info("Batch get of {} user(s)", request.getIds().size());
+        return ResponseEntity.ok(service.batchGet(request.getIds()));
+    }
+}
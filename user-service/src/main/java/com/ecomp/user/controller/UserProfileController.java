@@ -5,10 +5,20 @@ import com.ecomp.user.service.UserProfileService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/users")
@@ -19,6 +29,9 @@ public class UserProfileController {
 
     private final UserProfileService service;
 
+    @Value("${user.photo.http-cache.max-age-seconds:300}")
+    private long photoMaxAge;
+
     @GetMapping("/me")
     public ResponseEntity<UserProfileDto> getCurrentUser(@AuthenticationPrincipal Jwt jwt) {
         String keycloakId = jwt.getSubject();
@@ -38,6 +51,28 @@ public class UserProfileController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/{keycloakId}/photo")
+    public ResponseEntity<byte[]> getPhoto(@PathVariable String keycloakId, WebRequest request) {
+        Optional<String> etag = service.getPhotoEtag(keycloakId);
+        if (etag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(photoMaxAge)).cachePublic();
+        if (request.checkNotModified(etag.get())) {
+            // checkNotModified already set the 304 status and ETag header
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        // Photos that are not a servable raster image are treated as missing
+        return service.getPhoto(keycloakId)
+                .map(photo -> ResponseEntity.ok()
+                        .eTag(etag.get())
+                        .cacheControl(cacheControl)
+                        .contentType(MediaType.parseMediaType(photo.getContentType()))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().filename("photo").build().toString())
+                        .body(photo.getContent()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/profile")
     public ResponseEntity<UserProfileDto> createOrUpdate(
             @AuthenticationPrincipal Jwt jwt,
@@ -3,15 +3,23 @@ package com.ecomp.user.dto;
 import com.ecomp.user.entity.UserProfile;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.http.MediaType;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public class UserDtos {
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     @NoArgsConstructor
     @AllArgsConstructor
     public static class UserProfileDto {
@@ -30,13 +38,21 @@ public class UserDtos {
         private String socialMedia;
 
         public static UserProfileDto fromEntity(UserProfile entity) {
+            UserProfileDto dto = fromEntityWithoutPhoto(entity);
+            if (dto != null) {
+                dto.setPhotoBase64(entity.getPhotoBase64());
+            }
+            return dto;
+        }
+
+        // Leaves the lazy photo column untouched, so it is not loaded
+        public static UserProfileDto fromEntityWithoutPhoto(UserProfile entity) {
             if (entity == null) return null;
             return UserProfileDto.builder()
                     .keycloakId(entity.getKeycloakId())
                     .username(entity.getUsername())
                     .email(entity.getEmail())
                     .age(entity.getAge())
-                    .photoBase64(entity.getPhotoBase64())
                     .description(entity.getDescription())
                     .role(entity.getRole().name())
                     .phone(entity.getPhone())
@@ -79,4 +95,95 @@ public class UserDtos {
         private String website;
         private String socialMedia;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchGetRequest {
+        @NotEmpty(message = "At least one id is required")
+        @Size(max = 500, message = "At most 500 ids per request")
+        private List<String> ids;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UserSummaryDto {
+        private String keycloakId;
+        private String username;
+        private String role;
+        private String photoUrl;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Photo {
+        // Photos are served publicly from the gateway origin, so only raster formats go out;
+        // HTML, SVG and the like would run as active content there
+        private static final Set<MediaType> SERVABLE_TYPES = Set.of(
+                MediaType.IMAGE_PNG, MediaType.IMAGE_JPEG, MediaType.IMAGE_GIF, new MediaType("image", "webp"));
+
+        private String contentType;
+        private byte[] content;
+
+        /**
+         * Decodes a stored photo. The client stores data URLs (data:image/png;base64,...); for
+         * bare base64 the format is recognised from the leading bytes.
+         *
+         * @return empty when the photo is malformed or not a servable raster image
+         */
+        public static Optional<Photo> fromStored(String stored) {
+            try {
+                int comma = stored.indexOf(',');
+                MediaType type;
+                byte[] content;
+                if (stored.startsWith("data:") && comma > 0) {
+                    String header = stored.substring(5, comma);
+                    int semicolon = header.indexOf(';');
+                    type = MediaType.parseMediaType(semicolon >= 0 ? header.substring(0, semicolon) : header);
+                    content = Base64.getMimeDecoder().decode(stored.substring(comma + 1));
+                } else {
+                    content = Base64.getMimeDecoder().decode(stored);
+                    type = sniff(content);
+                }
+                if (type == null || !SERVABLE_TYPES.contains(new MediaType(type.getType(), type.getSubtype()))) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Photo(type.getType() + "/" + type.getSubtype(), content));
+            } catch (IllegalArgumentException e) {
+                // Covers InvalidMediaTypeException as well as bad base64
+                return Optional.empty();
+            }
+        }
+
+        private static MediaType sniff(byte[] content) {
+            if (startsWith(content, 0, 0x89, 'P', 'N', 'G')) {
+                return MediaType.IMAGE_PNG;
+            }
+            if (startsWith(content, 0, 0xFF, 0xD8, 0xFF)) {
+                return MediaType.IMAGE_JPEG;
+            }
+            if (startsWith(content, 0, 'G', 'I', 'F', '8')) {
+                return MediaType.IMAGE_GIF;
+            }
+            if (startsWith(content, 0, 'R', 'I', 'F', 'F') && startsWith(content, 8, 'W', 'E', 'B', 'P')) {
+                return new MediaType("image", "webp");
+            }
+            return null;
+        }
+
+        private static boolean startsWith(byte[] content, int offset, int... magic) {
+            if (content.length < offset + magic.length) {
+                return false;
+            }
+            for (int i = 0; i < magic.length; i++) {
+                if ((content[offset + i] & 0xFF) != magic[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
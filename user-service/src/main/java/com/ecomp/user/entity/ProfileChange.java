@@ -0,0 +1,29 @@
+package com.ecomp.user.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per profile write, read by every replica to evict its cached copy.
+ */
+@Entity
+@Table(name = "profile_changes", schema = "users",
+       indexes = @Index(name = "idx_profile_changes_changed_at", columnList = "changed_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "keycloak_id", nullable = false)
+    private String keycloakId;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -3,6 +3,7 @@ package com.ecomp.user.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.LazyGroup;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -31,7 +32,13 @@ public class UserProfile {
 
     private Integer age;
 
+    // Fetched on first access, so loading a profile never drags the photo along
+    // (needs the Hibernate bytecode enhancement configured in the pom)
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("photo")
     @Column(name = "photo_base64", columnDefinition = "TEXT")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private String photoBase64;
 
     @Column(columnDefinition = "TEXT")
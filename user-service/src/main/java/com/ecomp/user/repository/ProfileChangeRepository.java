@@ -0,0 +1,22 @@
+package com.ecomp.user.repository;
+
+import com.ecomp.user.entity.ProfileChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProfileChangeRepository extends JpaRepository<ProfileChange, Long> {
+
+    @Query("SELECT DISTINCT c.keycloakId FROM ProfileChange c WHERE c.changedAt > :since")
+    List<String> findKeycloakIdsChangedSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query("DELETE FROM ProfileChange c WHERE c.changedAt < :before")
+    int deleteChangedBefore(@Param("before") LocalDateTime before);
+}
@@ -2,8 +2,12 @@ package com.ecomp.user.repository;
 
 import com.ecomp.user.entity.UserProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -21,4 +25,29 @@ public interface UserProfileRepository extends JpaRepository<UserProfile, UUID>
     boolean existsByUsername(String username);
     
     boolean existsByEmail(String email);
+
+    // Only tests whether a photo exists, so the TEXT column is never read
+    @Query("SELECT u.keycloakId AS keycloakId, u.username AS username, u.role AS role, " +
+           "CASE WHEN u.photoBase64 IS NULL THEN false ELSE true END AS hasPhoto " +
+           "FROM UserProfile u WHERE u.keycloakId IN :keycloakIds")
+    List<UserProfileSummary> findSummariesByKeycloakIdIn(@Param("keycloakIds") Collection<String> keycloakIds);
+
+    @Query("SELECT u.keycloakId FROM UserProfile u WHERE u.username = :username")
+    Optional<String> findKeycloakIdByUsername(@Param("username") String username);
+
+    @Query("SELECT u.photoBase64 FROM UserProfile u WHERE u.keycloakId = :keycloakId")
+    Optional<String> findPhotoByKeycloakId(@Param("keycloakId") String keycloakId);
+
+    /**
+     * Identity and role of a user, for callers that do not need the rest of the profile.
+     */
+    interface UserProfileSummary {
+        String getKeycloakId();
+
+        String getUsername();
+
+        UserProfile.UserRole getRole();
+
+        boolean getHasPhoto();
+    }
 }
@@ -0,0 +1,210 @@
+package com.ecomp.user.service;
+
+import com.ecomp.user.dto.UserDtos.*;
+import com.ecomp.user.entity.ProfileChange;
+import com.ecomp.user.repository.ProfileChangeRepository;
+import com.ecomp.user.repository.UserProfileRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of profiles keyed by keycloakId, with a username index on top. Photos live
+ * in their own cache bounded by size in bytes, so the profile entries stay small and a few large
+ * photos cannot push everyone else out.
+ * <p>
+ * Every write also appends a row to users.profile_changes in the same transaction. Each replica
+ * polls that table and evicts what changed, so the other replicas catch up within one poll
+ * interval; the TTL bounds staleness if polling ever falls behind.
+ */
+@Component
+@Slf4j
+public class UserProfileCache {
+
+    private final UserProfileRepository repository;
+    private final ProfileChangeRepository changes;
+    private final AsyncCache<String, Optional<UserProfileDto>> profiles;
+    private final AsyncCache<String, String> keycloakIdsByUsername;
+    private final AsyncCache<String, Optional<StoredPhoto>> photos;
+    private final Duration lookback;
+    private final Duration retention;
+    private LocalDateTime lastPolledAt = LocalDateTime.now();
+
+    public UserProfileCache(UserProfileRepository repository,
+                            ProfileChangeRepository changes,
+                            MeterRegistry meterRegistry,
+                            @Value("${user.cache.max-profiles:10000}") long maxProfiles,
+                            @Value("${user.cache.max-photo-bytes:33554432}") long maxPhotoBytes,
+                            @Value("${user.cache.ttl-minutes:10}") long ttlMinutes,
+                            @Value("${user.cache.invalidation.lookback-seconds:10}") long lookbackSeconds,
+                            @Value("${user.cache.invalidation.retention-minutes:60}") long retentionMinutes) {
+        this.repository = repository;
+        this.changes = changes;
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(maxProfiles)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .buildAsync();
+        this.keycloakIdsByUsername = Caffeine.newBuilder()
+                .maximumSize(maxProfiles)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .buildAsync();
+        this.photos = Caffeine.newBuilder()
+                .maximumWeight(maxPhotoBytes)
+                .weigher((String key, Optional<StoredPhoto> photo) -> photo.map(p -> p.getValue().length()).orElse(0) + key.length())
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .buildAsync();
+        this.lookback = Duration.ofSeconds(lookbackSeconds);
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles.synchronous(), "user.profiles");
+        CaffeineCacheMetrics.monitor(meterRegistry, keycloakIdsByUsername.synchronous(), "user.profiles.by-username");
+        CaffeineCacheMetrics.monitor(meterRegistry, photos.synchronous(), "user.photos");
+    }
+
+    /**
+     * The cached profile, without its photo.
+     */
+    public Optional<UserProfileDto> getByKeycloakId(String keycloakId) {
+        return getOrLoad(profiles, keycloakId, this::load);
+    }
+
+    public Optional<UserProfileDto> getByUsername(String username) {
+        String keycloakId = getOrLoad(keycloakIdsByUsername, username,
+                name -> repository.findKeycloakIdByUsername(name).orElse(null));
+        if (keycloakId == null) {
+            return Optional.empty();
+        }
+        Optional<UserProfileDto> profile = getByKeycloakId(keycloakId);
+        if (profile.isPresent() && username.equals(profile.get().getUsername())) {
+            return profile;
+        }
+        // The user was renamed since the index entry was cached
+        keycloakIdsByUsername.synchronous().invalidate(username);
+        return repository.findKeycloakIdByUsername(username).flatMap(this::getByKeycloakId);
+    }
+
+    public Optional<StoredPhoto> getPhoto(String keycloakId) {
+        return getOrLoad(photos, keycloakId, id -> repository.findPhotoByKeycloakId(id)
+                .map(value -> new StoredPhoto(value, etagOf(value))));
+    }
+
+    /**
+     * Records a write to the profile. Must run inside the writing transaction; the local entries
+     * are dropped right away and again once the transaction ends, so nothing read meanwhile
+     * survives it.
+     */
+    public void profileChanged(String keycloakId) {
+        changes.save(ProfileChange.builder()
+                .keycloakId(keycloakId)
+                .changedAt(LocalDateTime.now())
+                .build());
+        evict(keycloakId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(keycloakId);
+                }
+            });
+        }
+    }
+
+    // Changes are re-read for a lookback window so slow commits and clock skew between replicas
+    // are not missed; evicting an entry twice only costs a reload
+    @Scheduled(fixedDelayString = "${user.cache.invalidation.poll-interval-ms:1000}")
+    public void pollChanges() {
+        LocalDateTime pollStartedAt = LocalDateTime.now();
+        List<String> changed = changes.findKeycloakIdsChangedSince(lastPolledAt.minus(lookback));
+        changed.forEach(this::evict);
+        lastPolledAt = pollStartedAt;
+        if (!changed.isEmpty()) {
+            log.debug("Evicted {} changed profile(s) from the cache", changed.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${user.cache.invalidation.prune-interval-ms:600000}")
+    @Transactional
+    public void pruneChanges() {
+        int removed = changes.deleteChangedBefore(LocalDateTime.now().minus(retention));
+        if (removed > 0) {
+            log.debug("Pruned {} profile change record(s)", removed);
+        }
+    }
+
+    /**
+     * Loads on the calling thread, outside the cache's internal locks, so a virtual thread
+     * waiting on the database does not pin its carrier. Concurrent callers for the same key
+     * wait on the first one's future. An entry invalidated while its load is running is simply
+     * dropped, and the stale value never reaches the cache.
+     */
+    private static <V> V getOrLoad(AsyncCache<String, V> cache, String key, Function<String, V> loader) {
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> entry = cache.get(key, (k, executor) -> loading);
+        if (entry == loading) {
+            try {
+                V value = loader.apply(key);
+                loading.complete(value);
+                return value;
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return entry.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private Optional<UserProfileDto> load(String keycloakId) {
+        return repository.findByKeycloakId(keycloakId).map(UserProfileDto::fromEntityWithoutPhoto);
+    }
+
+    private static String etagOf(String photo) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(photo.getBytes(StandardCharsets.UTF_8));
+            return "\"photo-" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The username index is left alone; getByUsername verifies every entry against the profile
+    private void evict(String keycloakId) {
+        profiles.synchronous().invalidate(keycloakId);
+        photos.synchronous().invalidate(keycloakId);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class StoredPhoto {
+        // As stored: a data URL or bare base64
+        private final String value;
+        private final String etag;
+    }
+}
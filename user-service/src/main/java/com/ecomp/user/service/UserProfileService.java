@@ -3,12 +3,18 @@ package com.ecomp.user.service;
 import com.ecomp.user.dto.UserDtos.*;
 import com.ecomp.user.entity.UserProfile;
 import com.ecomp.user.repository.UserProfileRepository;
+import com.ecomp.user.repository.UserProfileRepository.UserProfileSummary;
+import com.ecomp.user.service.UserProfileCache.StoredPhoto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -16,18 +22,39 @@ import java.util.Optional;
 public class UserProfileService {
 
     private final UserProfileRepository repository;
+    private final UserProfileCache cache;
 
-    @Transactional(readOnly = true)
+    @Value("${user.photo.base-url:/api/users}")
+    private String photoBaseUrl;
+
+    // Served from the cache without a transaction, so a hit never takes a connection
     public Optional<UserProfileDto> getByKeycloakId(String keycloakId) {
         log.info("Getting user profile for keycloakId: {}", keycloakId);
-        return repository.findByKeycloakId(keycloakId)
-                .map(UserProfileDto::fromEntity);
+        return cache.getByKeycloakId(keycloakId).map(this::withPhoto);
     }
 
-    @Transactional(readOnly = true)
     public Optional<UserProfileDto> getByUsername(String username) {
-        return repository.findByUsername(username)
-                .map(UserProfileDto::fromEntity);
+        return cache.getByUsername(username).map(this::withPhoto);
+    }
+
+    /**
+     * Display data for many users in one query; unknown ids are left out of the result.
+     */
+    @Transactional(readOnly = true)
+    public List<UserSummaryDto> batchGet(List<String> keycloakIds) {
+        return repository.findSummariesByKeycloakIdIn(new LinkedHashSet<>(keycloakIds)).stream()
+                .map(this::toSummaryDto)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<String> getPhotoEtag(String keycloakId) {
+        return cache.getPhoto(keycloakId)
+                .map(StoredPhoto::getEtag);
+    }
+
+    public Optional<Photo> getPhoto(String keycloakId) {
+        return cache.getPhoto(keycloakId)
+                .flatMap(photo -> Photo.fromStored(photo.getValue()));
     }
 
     @Transactional
@@ -63,6 +90,7 @@ public class UserProfileService {
                         .build());
 
         UserProfile saved = repository.save(profile);
+        cache.profileChanged(keycloakId);
         log.info("User profile saved with id: {}", saved.getId());
         return UserProfileDto.fromEntity(saved);
     }
@@ -71,6 +99,24 @@ public class UserProfileService {
     public void delete(String keycloakId) {
         log.info("Deleting user profile for keycloakId: {}", keycloakId);
         repository.findByKeycloakId(keycloakId)
-                .ifPresent(repository::delete);
+                .ifPresent(profile -> {
+                    repository.delete(profile);
+                    cache.profileChanged(keycloakId);
+                });
+    }
+
+    private UserProfileDto withPhoto(UserProfileDto cached) {
+        return cached.toBuilder()
+                .photoBase64(cache.getPhoto(cached.getKeycloakId()).map(StoredPhoto::getValue).orElse(null))
+                .build();
+    }
+
+    private UserSummaryDto toSummaryDto(UserProfileSummary summary) {
+        return UserSummaryDto.builder()
+                .keycloakId(summary.getKeycloakId())
+                .username(summary.getUsername())
+                .role(summary.getRole().name())
+                .photoUrl(summary.getHasPhoto() ? photoBaseUrl + "/" + summary.getKeycloakId() + "/photo" : null)
+                .build();
     }
 }
@@ -1,21 +1,33 @@
 package com.ecomp.user;
 
 import com.ecomp.user.dto.UserDtos.*;
+import com.ecomp.user.entity.ProfileChange;
 import com.ecomp.user.entity.UserProfile;
+import com.ecomp.user.repository.ProfileChangeRepository;
 import com.ecomp.user.repository.UserProfileRepository;
+import com.ecomp.user.service.UserProfileCache;
 import com.ecomp.user.service.UserProfileService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 @ActiveProfiles("test")
 @Transactional
 class UserProfileServiceTest {
@@ -26,6 +38,18 @@ class UserProfileServiceTest {
     @Autowired
     private UserProfileRepository repository;
 
+    @Autowired
+    private ProfileChangeRepository changes;
+
+    @Autowired
+    private UserProfileCache cache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
     private static final String TEST_KEYCLOAK_ID = "test-keycloak-123";
 
     @BeforeEach
@@ -154,4 +178,101 @@ class UserProfileServiceTest {
         assertEquals("https://ecoturismo.com", result.getWebsite());
         assertEquals("@ecoturismo", result.getSocialMedia());
     }
+
+    @Test
+    void batchGet_ReturnsSummariesForKnownIds() {
+        service.createOrUpdate(TEST_KEYCLOAK_ID, UserProfileInput.builder()
+                .username("withphoto")
+                .email("photo@example.com")
+                .photoBase64("data:image/png;base64,iVBORw0KGgo=")
+                .build());
+        service.createOrUpdate("other-keycloak-456", UserProfileInput.builder()
+                .username("nophoto")
+                .email("nophoto@example.com")
+                .build());
+
+        List<UserSummaryDto> result = service.batchGet(List.of(TEST_KEYCLOAK_ID, "other-keycloak-456", "unknown"));
+
+        assertEquals(2, result.size());
+        UserSummaryDto withPhoto = result.stream()
+                .filter(u -> u.getKeycloakId().equals(TEST_KEYCLOAK_ID)).findFirst().orElseThrow();
+        assertEquals("withphoto", withPhoto.getUsername());
+        assertEquals("CLIENT", withPhoto.getRole());
+        assertEquals("/api/users/" + TEST_KEYCLOAK_ID + "/photo", withPhoto.getPhotoUrl());
+        UserSummaryDto withoutPhoto = result.stream()
+                .filter(u -> u.getKeycloakId().equals("other-keycloak-456")).findFirst().orElseThrow();
+        assertNull(withoutPhoto.getPhotoUrl());
+
+        Photo photo = service.getPhoto(TEST_KEYCLOAK_ID).orElseThrow();
+        assertEquals("image/png", photo.getContentType());
+        assertEquals(8, photo.getContent().length);
+    }
+
+    @Test
+    void photoFromStored_ServesOnlyRasterImages() {
+        assertTrue(Photo.fromStored("data:text/html;base64,PHNjcmlwdD5hbGVydCgxKTwvc2NyaXB0Pg==").isEmpty());
+        assertTrue(Photo.fromStored("data:image/svg+xml;base64,PHN2Zy8+").isEmpty());
+        assertTrue(Photo.fromStored("data:image/;base64,iVBORw0KGgo=").isEmpty());
+        assertTrue(Photo.fromStored("data:image/png;base64,not*base64").isEmpty());
+        assertTrue(Photo.fromStored("PHNjcmlwdD4=").isEmpty());
+
+        assertEquals("image/jpeg", Photo.fromStored("data:IMAGE/JPEG;base64,/9j/4A==").orElseThrow().getContentType());
+        // Bare base64 is recognised from the PNG signature
+        assertEquals("image/png", Photo.fromStored("iVBORw0KGgo=").orElseThrow().getContentType());
+    }
+
+    @Test
+    void getByKeycloakId_CachedUntilChanged() {
+        service.createOrUpdate(TEST_KEYCLOAK_ID, UserProfileInput.builder()
+                .username("cached")
+                .email("cached@example.com")
+                .photoBase64("data:image/png;base64,iVBORw0KGgo=")
+                .build());
+        assertTrue(service.getByKeycloakId(TEST_KEYCLOAK_ID).isPresent());
+
+        // Written behind the service's back, as another replica would
+        UserProfile profile = repository.findByKeycloakId(TEST_KEYCLOAK_ID).orElseThrow();
+        profile.setUsername("renamed");
+        repository.saveAndFlush(profile);
+
+        UserProfileDto cached = service.getByKeycloakId(TEST_KEYCLOAK_ID).orElseThrow();
+        assertEquals("cached", cached.getUsername());
+        assertEquals("data:image/png;base64,iVBORw0KGgo=", cached.getPhotoBase64());
+
+        changes.save(ProfileChange.builder()
+                .keycloakId(TEST_KEYCLOAK_ID)
+                .changedAt(LocalDateTime.now())
+                .build());
+        cache.pollChanges();
+
+        assertEquals("renamed", service.getByKeycloakId(TEST_KEYCLOAK_ID).orElseThrow().getUsername());
+        assertTrue(service.getByUsername("cached").isEmpty());
+        assertTrue(service.getByUsername("renamed").isPresent());
+    }
+
+    @Test
+    void findByKeycloakId_LeavesPhotoUnloaded() {
+        service.createOrUpdate(TEST_KEYCLOAK_ID, UserProfileInput.builder()
+                .username("lazy")
+                .email("lazy@example.com")
+                .photoBase64("data:image/png;base64,iVBORw0KGgo=")
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        UserProfile profile = repository.findByKeycloakId(TEST_KEYCLOAK_ID).orElseThrow();
+
+        assertFalse(Hibernate.isPropertyInitialized(profile, "photoBase64"));
+        assertEquals("lazy", profile.getUsername());
+        assertEquals("data:image/png;base64,iVBORw0KGgo=", profile.getPhotoBase64());
+        assertTrue(service.getPhotoEtag(TEST_KEYCLOAK_ID).isPresent());
+        assertTrue(service.getPhotoEtag("other-keycloak-456").isEmpty());
+    }
+
+    @Test
+    void actuator_MetricsNeedAuthentication_HealthStaysOpen() throws Exception {
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics/user.profiles.hits")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
 }